@@ -17,26 +17,30 @@
  */	
 package com.opensource.pullview.demo;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AbsListView;
-import android.widget.ArrayAdapter;
 import android.widget.BaseAdapter;
+import android.widget.TextView;
 
-import com.opensource.pullview.OnLoadMoreListener;
-import com.opensource.pullview.OnRefreshListener;
+import com.opensource.pullview.CancellationSignal;
+import com.opensource.pullview.OnPageLoadListener;
+import com.opensource.pullview.PullDiffAdapter;
 import com.opensource.pullview.PullListView;
+import com.opensource.pullview.paging.Page;
+import com.opensource.pullview.paging.PageCache;
+import com.opensource.pullview.paging.PageSnapshot;
+import com.opensource.pullview.paging.PagedLoader;
+import com.opensource.pullview.paging.PagedSource;
 import com.opensource.pullview.utils.DateUtil;
 
 /**
@@ -48,53 +52,39 @@ public class PullListViewActivity extends Activity {
 	
 	private static final String TAG = "PullListViewActivity";
 
-    private static final int MSG_REFLESH_DONE = 0x100;
-	private static final int MSG_LOAD_DONE = 0x101;
+	private static final int PAGE_SIZE = 30;
+	private static final int PAGE_COUNT = 3;
 
 
+	/**
+	 * Outlives the activity, the pages are shown at once when it's opened again.
+	 */
+	private static final PageCache<Integer, String> sCache = new PageCache<Integer, String>(PAGE_SIZE * PAGE_COUNT);
+
 	private PullListView mListView;
-	private MainHandler mHandler = new MainHandler();
-	private ArrayAdapter<String> mAdapter;
+	private PullDiffAdapter<String> mAdapter;
 	private List<String> mDatas = new ArrayList<String>();
-	
-	@SuppressLint("HandlerLeak")
-	private class MainHandler extends Handler {
+
+	/**
+	 * Simulates a slow network, runs on a background thread.
+	 */
+	private final PagedSource<Integer, String> mSource = new PagedSource<Integer, String>() {
 		@Override
-		public void handleMessage(Message msg) {
-			switch (msg.what) {
-                case MSG_REFLESH_DONE:
-                    if(null != mListView) {
-                        if(null != mAdapter) {
-                            mAdapter.clear();
-                            for(int i = 0; i < 30; i++) {
-                                mDatas.add("Item " + mDatas.size());
-                            }
-                            mAdapter.notifyDataSetChanged();
-                        }
-                        mListView.refreshCompleted();
-                        mListView.loadMoreCompleted(mDatas.size() < 50);
-                        Log.e(TAG, "Refresh finished +=====================^_^");
-                    }
-                    break;
-                case MSG_LOAD_DONE:
-                    if(null != mListView) {
-                        if(null != mAdapter) {
-                            for(int i = 0; i < 30; i++) {
-                                mDatas.add("Item " + mDatas.size());
-                            }
-                            mAdapter.notifyDataSetChanged();
-                        }
-                        mListView.refreshCompleted();
-                        mListView.loadMoreCompleted(mDatas.size() < 50);
-                        Log.e(TAG, "Load more finished +=====================^_^");
-                    }
-                    break;
-                default:
-                    break;
+		public Page<Integer, String> load(Integer key, CancellationSignal signal) throws Exception {
+			final int page = null == key ? 0 : key;
+			final int delay = page == 0 ? 3000 : 5000;
+			for(int time = 0; time < delay; time += 100) {
+				// Stop waiting when the activity is gone
+				signal.throwIfCanceled();
+				Thread.sleep(100);
+			}
+			final List<String> items = new ArrayList<String>();
+			for(int i = 0; i < PAGE_SIZE; i++) {
+				items.add("Item " + (page * PAGE_SIZE + i));
 			}
-			super.handleMessage(msg);
+			return new Page<Integer, String>(items, page + 1 < PAGE_COUNT ? page + 1 : null);
 		}
-	}
+	};
 	
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
@@ -117,7 +107,21 @@ public class PullListViewActivity extends Activity {
 //		iv3.setImageResource(com.opensource.pullview.R.drawable.ic_launcher);
 //		mListView.addHeaderView(iv3);
 		
-		mAdapter = new ArrayAdapter<String>(this, android.R.layout.simple_list_item_1, mDatas);
+		mAdapter = new PullDiffAdapter<String>() {
+			@Override
+			public long getStableId(String item) {
+				return item.hashCode();
+			}
+
+			@Override
+			protected View bindView(String item, View convertView, ViewGroup parent) {
+				if(null == convertView) {
+					convertView = View.inflate(parent.getContext(), android.R.layout.simple_list_item_1, null);
+				}
+				((TextView) convertView).setText(item);
+				return convertView;
+			}
+		};
 		List<String> datas = new ArrayList<>();
 		for(int i = 0; i < 20; i++) {
 			datas.add("Datas-->" + i);
@@ -127,26 +131,42 @@ public class PullListViewActivity extends Activity {
 
         mListView.setEnableOverScroll(true);
 		
-		mListView.setOnRefreshListener(new OnRefreshListener() {
+		PagedLoader<Integer, String> loader = mListView.setPagedSource(mSource, new OnPageLoadListener<String>() {
 
 			@Override
-			public void onRefresh() {
-				mHandler.sendEmptyMessageDelayed(MSG_REFLESH_DONE, 5000);
-				Log.e(TAG, "Start refresh+=====================^_^");
+			public void onPageLoaded(List<String> items, boolean refresh) {
+				if(refresh) {
+					mDatas.clear();
+				}
+				mDatas.addAll(items);
+				// Only the changed rows are bound again, and the list doesn't jump
+				mAdapter.submitList(mDatas);
+				Log.e(TAG, (refresh ? "Refresh" : "Load more") + " finished +=====================^_^");
 			}
-        });
 
-		mListView.setOnLoadMoreListener(new OnLoadMoreListener() {
+			@Override
+			public void onPreviousPageLoaded(List<String> items) {
+				mDatas.addAll(0, items);
+				// The adapter keeps the first visible item where it is
+				mAdapter.submitList(mDatas);
+			}
 
 			@Override
-			public void onLoadMore() {
-				mHandler.sendEmptyMessageDelayed(MSG_LOAD_DONE, 5000);
-				Log.e(TAG, "Start load more+=====================^_^");
+			public void onLoadFailed(Throwable error, boolean refresh) {
+				Log.e(TAG, "Load failed", error);
 			}
-        });
+		});
+		
+		loader.setCache(sCache);
+		loader.setSnapshot(new PageSnapshot<Integer, String>(new File(getCacheDir(), "pull_list_view.snapshot"), 1,
+				PageSnapshot.INTEGER_CODEC, PageSnapshot.STRING_CODEC));
+		if(sCache.size() == 0) {
+			// Cold start, show the first page of the last run before the first layout
+			loader.restoreSnapshot();
+		}
 		
-		mListView.onFootLoading("正在加载");
-		mHandler.sendEmptyMessageDelayed(MSG_LOAD_DONE, 3000);
+		// Through the list, so it's canceled when the activity is gone, and retried when it fails
+		mListView.loadFirstPage();
 	}
 
 }
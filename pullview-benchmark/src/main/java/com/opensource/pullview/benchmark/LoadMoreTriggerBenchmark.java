@@ -0,0 +1,148 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.benchmark;
+
+import com.opensource.pullview.IPullView;
+import com.opensource.pullview.LoadMoreTrigger;
+import com.opensource.pullview.PullScrollMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Usage Replays the onScroll callbacks of a fling from the top to the end of a list
+ * through the load-more trigger.<br>
+ * <p>{@link #fling()} sets the scroll bar values on every callback, {@link #flingLazy()} reads them from a
+ * {@link PullScrollMetrics.Source} which walks the visible items like smoothScrollbar does, only when needed.<br>
+ * <p>Score is the time of one fling, run with "-prof gc" to check gc.alloc.rate.norm stays 0.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadMoreTriggerBenchmark {
+
+    private static final int ITEM_HEIGHT = 100;
+    private static final int ITEM_COUNT = 500;
+    private static final int VIEW_HEIGHT = 1280;
+    private static final int SCROLL_PER_FRAME = 37;
+
+    private final PullScrollMetrics mMetrics = new PullScrollMetrics();
+    private final PullScrollMetrics mLazyMetrics = new PullScrollMetrics();
+    private final LoadMoreTrigger mTrigger = new LoadMoreTrigger();
+    private final VisibleItems mItems = new VisibleItems();
+
+    public LoadMoreTriggerBenchmark() {
+        mLazyMetrics.setSource(mItems);
+    }
+
+    @Benchmark
+    public int fling() {
+        final int range = ITEM_COUNT * ITEM_HEIGHT;
+        final int maxOffset = range - VIEW_HEIGHT;
+        int triggered = 0;
+        for (int offset = 0; offset <= maxOffset; offset += SCROLL_PER_FRAME) {
+            if (offset + SCROLL_PER_FRAME > maxOffset) {
+                // The fling stops at the end.
+                offset = maxOffset;
+            }
+            final int first = offset / ITEM_HEIGHT;
+            mMetrics.setItems(first, Math.min(VIEW_HEIGHT / ITEM_HEIGHT + 1, ITEM_COUNT - first), ITEM_COUNT);
+            mMetrics.setScroll(offset, VIEW_HEIGHT, range);
+            if (mTrigger.canPull(mMetrics, IPullView.LoadMode.PULL_TO_LOAD, true, true)) {
+                triggered++;
+            }
+            if (mTrigger.shouldAutoLoad(mMetrics, IPullView.LoadMode.AUTO_LOAD, true, IPullView.IDEL)) {
+                triggered++;
+            }
+        }
+        return triggered;
+    }
+
+    @Benchmark
+    public int flingLazy() {
+        final int range = ITEM_COUNT * ITEM_HEIGHT;
+        final int maxOffset = range - VIEW_HEIGHT;
+        int triggered = 0;
+        for (int offset = 0; offset <= maxOffset; offset += SCROLL_PER_FRAME) {
+            if (offset + SCROLL_PER_FRAME > maxOffset) {
+                offset = maxOffset;
+            }
+            final int first = offset / ITEM_HEIGHT;
+            mItems.mOffset = offset;
+            mLazyMetrics.setItems(first, Math.min(VIEW_HEIGHT / ITEM_HEIGHT + 1, ITEM_COUNT - first), ITEM_COUNT);
+            mLazyMetrics.invalidateScroll();
+            if (mTrigger.canPull(mLazyMetrics, IPullView.LoadMode.PULL_TO_LOAD, true, true)) {
+                triggered++;
+            }
+            if (mTrigger.shouldAutoLoad(mLazyMetrics, IPullView.LoadMode.AUTO_LOAD, true, IPullView.IDEL)) {
+                triggered++;
+            }
+        }
+        return triggered;
+    }
+
+    /**
+     * Computes the scroll bar values from the visible items, as AbsListView does with smoothScrollbar.
+     */
+    private static class VisibleItems implements PullScrollMetrics.Source {
+
+        int mOffset;
+
+        @Override
+        public int computeScrollOffset() {
+            final int first = mOffset / ITEM_HEIGHT;
+            final int top = first * ITEM_HEIGHT - mOffset;
+            return Math.max(first * 100 - top * 100 / ITEM_HEIGHT, 0);
+        }
+
+        @Override
+        public int computeScrollExtent() {
+            final int count = Math.min(VIEW_HEIGHT / ITEM_HEIGHT + 1, ITEM_COUNT - mOffset / ITEM_HEIGHT);
+            int extent = count * 100;
+            for (int i = 0; i < count; i++) {
+                final int top = (mOffset / ITEM_HEIGHT + i) * ITEM_HEIGHT - mOffset;
+                if (top < 0) {
+                    extent += top * 100 / ITEM_HEIGHT;
+                }
+                if (top + ITEM_HEIGHT > VIEW_HEIGHT) {
+                    extent -= (top + ITEM_HEIGHT - VIEW_HEIGHT) * 100 / ITEM_HEIGHT;
+                }
+            }
+            return extent;
+        }
+
+        @Override
+        public int computeScrollRange() {
+            return ITEM_COUNT * 100;
+        }
+    }
+}
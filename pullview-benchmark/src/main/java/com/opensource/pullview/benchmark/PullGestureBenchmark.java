@@ -0,0 +1,198 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.benchmark;
+
+import com.opensource.pullview.IPullView;
+import com.opensource.pullview.LoadMoreTrigger;
+import com.opensource.pullview.PullGestureEngine;
+import com.opensource.pullview.PullResistance;
+import com.opensource.pullview.PullScrollMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Usage Replays whole touch streams through {@link PullGestureEngine}.<br>
+ * <p>The callback does what the widgets do in updateHeaderViewByState/updateFooterViewByState,
+ * without the View calls, and a simulated list scrolls while the engine does not consume the move.<br>
+ * <p>Score is the time of one stream, run with "-prof gc" to check gc.alloc.rate.norm stays 0.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PullGestureBenchmark {
+
+    private static final int HEADER_HEIGHT = 150;
+    private static final int FOOTER_HEIGHT = 100;
+    private static final int CONTENT_HEIGHT = 20000;
+    private static final int VIEW_HEIGHT = 1280;
+    private static final int ITEM_HEIGHT = 100;
+
+    @Param({"pull_to_refresh", "pull_and_back", "pull_to_load", "scroll_then_pull", "recorded"})
+    public String stream;
+
+    @Param({"linear", "logarithmic", "elastic"})
+    public String resistance;
+
+    private TouchStream mStream;
+    private int mStartOffset;
+
+    private final PullScrollMetrics mMetrics = new PullScrollMetrics();
+    private final LoadMoreTrigger mTrigger = new LoadMoreTrigger();
+    private final HeaderFooterCallback mCallback = new HeaderFooterCallback();
+    private final PullGestureEngine mEngine = new PullGestureEngine(mCallback);
+
+    @Setup
+    public void setup() throws IOException {
+        if ("logarithmic".equals(resistance)) {
+            mEngine.setResistance(PullResistance.create(PullResistance.TYPE_LOGARITHMIC, IPullView.OFFSET_RATIO, 600));
+        } else if ("elastic".equals(resistance)) {
+            mEngine.setResistance(PullResistance.create(PullResistance.TYPE_ELASTIC, IPullView.OFFSET_RATIO, 600));
+        } else {
+            mEngine.setResistance(PullResistance.linear(IPullView.OFFSET_RATIO));
+        }
+        if ("pull_to_refresh".equals(stream)) {
+            mStream = TouchStream.pull(300, 900, 60);
+            mStartOffset = 0;
+        } else if ("pull_and_back".equals(stream)) {
+            mStream = TouchStream.pullAndBack(300, 400, 40);
+            mStartOffset = 0;
+        } else if ("pull_to_load".equals(stream)) {
+            mStream = TouchStream.pull(1000, -700, 60);
+            mStartOffset = CONTENT_HEIGHT - VIEW_HEIGHT;
+        } else if ("scroll_then_pull".equals(stream)) {
+            // The list scrolls 600px back to the top, then the rest of the move pulls the header.
+            mStream = TouchStream.pull(200, 1500, 120);
+            mStartOffset = 600;
+        } else {
+            mStream = TouchStream.load("/traces/pull_to_refresh.trace");
+            mStartOffset = 0;
+        }
+    }
+
+    @Benchmark
+    public int replay() {
+        final TouchStream touches = mStream;
+        final PullGestureEngine engine = mEngine;
+        int offset = mStartOffset;
+        int lastY = 0;
+        setScroll(offset);
+        for (int i = 0; i < touches.size; i++) {
+            final int y = touches.ys[i];
+            final long time = touches.times[i];
+            switch (touches.actions[i]) {
+                case TouchStream.ACTION_DOWN:
+                    engine.onDown(y, time);
+                    break;
+                case TouchStream.ACTION_MOVE:
+                    if (!engine.onMove(y, time)) {
+                        // Not pulling, the list scrolls.
+                        offset = Math.max(0, Math.min(CONTENT_HEIGHT - VIEW_HEIGHT, offset - (y - lastY)));
+                        setScroll(offset);
+                    }
+                    break;
+                case TouchStream.ACTION_UP:
+                    engine.onUp();
+                    break;
+                default:
+                    break;
+            }
+            lastY = y;
+        }
+        if (engine.getState() == IPullView.LOADING) {
+            // Loading finished
+            engine.setState(IPullView.IDEL);
+        }
+        return mCallback.mPadding + mCallback.mStateChanges;
+    }
+
+    private void setScroll(int offset) {
+        final int first = offset / ITEM_HEIGHT;
+        final int total = CONTENT_HEIGHT / ITEM_HEIGHT;
+        mMetrics.setScroll(offset, VIEW_HEIGHT, CONTENT_HEIGHT);
+        mMetrics.setItems(first, Math.min(VIEW_HEIGHT / ITEM_HEIGHT + 1, total - first), total);
+    }
+
+    private class HeaderFooterCallback implements PullGestureEngine.Callback {
+
+        int mPadding;
+        int mStateChanges;
+        boolean mIsBack;
+
+        @Override
+        public boolean canPull(int edge) {
+            if (edge == PullGestureEngine.EDGE_TOP) {
+                return mMetrics.isAtTop();
+            }
+            return mTrigger.canPull(mMetrics, IPullView.LoadMode.PULL_TO_LOAD, true, true);
+        }
+
+        @Override
+        public int getPullThreshold(int edge) {
+            return edge == PullGestureEngine.EDGE_TOP ? HEADER_HEIGHT : FOOTER_HEIGHT;
+        }
+
+        @Override
+        public void onPullChanged(int edge, int state, int lastState, int distance) {
+            final int height = edge == PullGestureEngine.EDGE_TOP ? HEADER_HEIGHT : FOOTER_HEIGHT;
+            if (state != lastState) {
+                mStateChanges++;
+            }
+            switch (state) {
+                case IPullView.RELEASE_TO_LOAD:
+                case IPullView.PULL_TO_LOAD:
+                    if (state == IPullView.RELEASE_TO_LOAD && lastState == IPullView.PULL_TO_LOAD) {
+                        mIsBack = true;
+                    } else if (state == IPullView.PULL_TO_LOAD && mIsBack) {
+                        mIsBack = false;
+                    }
+                    mPadding = distance - height;
+                    break;
+                case IPullView.LOADING:
+                    mPadding = 0;
+                    break;
+                case IPullView.IDEL:
+                default:
+                    mPadding = -height;
+                    break;
+            }
+        }
+
+        @Override
+        public boolean onPullRelease(int edge) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Usage A touch stream kept in primitive arrays, so replaying it allocates nothing.<br>
+ * <p>Streams are either generated or loaded from a trace file with one event per line:
+ * <pre>&lt;action&gt; &lt;y&gt; &lt;eventTimeMillis&gt;</pre>
+ * action uses the values of MotionEvent(0 down, 1 up, 2 move), lines start with '#' are comments.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class TouchStream {
+
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+
+    /**
+     * The interval of the generated events, a 125Hz touch panel.
+     */
+    private static final int EVENT_INTERVAL = 8;
+
+    final int[] actions;
+    final int[] ys;
+    final long[] times;
+    final int size;
+
+    private TouchStream(int[] actions, int[] ys, long[] times) {
+        this.actions = actions;
+        this.ys = ys;
+        this.times = times;
+        this.size = actions.length;
+    }
+
+    /**
+     * A straight pull from startY, moving distance in moves events, then release.
+     *
+     * @param startY
+     * @param distance positive to pull down, negative to pull up
+     * @param moves
+     * @return
+     */
+    public static TouchStream pull(int startY, int distance, int moves) {
+        final Builder builder = new Builder();
+        long time = 0;
+        builder.add(ACTION_DOWN, startY, time);
+        for (int i = 1; i <= moves; i++) {
+            time += EVENT_INTERVAL;
+            builder.add(ACTION_MOVE, startY + distance * i / moves, time);
+        }
+        builder.add(ACTION_UP, startY + distance, time + EVENT_INTERVAL);
+        return builder.build();
+    }
+
+    /**
+     * Pull distance in moves events, then go back to the start position and release.
+     *
+     * @param startY
+     * @param distance
+     * @param moves
+     * @return
+     */
+    public static TouchStream pullAndBack(int startY, int distance, int moves) {
+        final Builder builder = new Builder();
+        long time = 0;
+        builder.add(ACTION_DOWN, startY, time);
+        for (int i = 1; i <= moves; i++) {
+            time += EVENT_INTERVAL;
+            builder.add(ACTION_MOVE, startY + distance * i / moves, time);
+        }
+        for (int i = moves - 1; i >= 0; i--) {
+            time += EVENT_INTERVAL;
+            builder.add(ACTION_MOVE, startY + distance * i / moves, time);
+        }
+        builder.add(ACTION_UP, startY, time + EVENT_INTERVAL);
+        return builder.build();
+    }
+
+    /**
+     * Loads a recorded stream from a trace file in the classpath.
+     *
+     * @param resource
+     * @return
+     * @throws IOException
+     */
+    public static TouchStream load(String resource) throws IOException {
+        final InputStream in = TouchStream.class.getResourceAsStream(resource);
+        if (null == in) {
+            throw new IOException("Trace not found: " + resource);
+        }
+        final Builder builder = new Builder();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] values = line.split("\\s+");
+                if (values.length != 3) {
+                    throw new IOException("Bad trace line: " + line);
+                }
+                builder.add(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Long.parseLong(values[2]));
+            }
+        } finally {
+            reader.close();
+        }
+        return builder.build();
+    }
+
+    private static class Builder {
+
+        private final List<long[]> mEvents = new ArrayList<long[]>();
+
+        void add(int action, int y, long time) {
+            mEvents.add(new long[]{action, y, time});
+        }
+
+        TouchStream build() {
+            final int size = mEvents.size();
+            final int[] actions = new int[size];
+            final int[] ys = new int[size];
+            final long[] times = new long[size];
+            for (int i = 0; i < size; i++) {
+                final long[] event = mEvents.get(i);
+                actions[i] = (int) event[0];
+                ys[i] = (int) event[1];
+                times[i] = event[2];
+            }
+            return new TouchStream(actions, ys, times);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Usage Cancels a refresh or load more when its result can't be shown any more.<br>
+ * <p>The widget creates one for every refresh or load more, and cancels it when it is detached from the window.
+ * Poll {@link #isCanceled()} in the load, or set an {@link OnCancelListener} to abort a blocking call,
+ * like disconnecting the http connection.<br>
+ * <p>Same as android.os.CancellationSignal, which is not available before Jelly Bean. Thread safe.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public final class CancellationSignal {
+
+    private volatile boolean mCanceled = false;
+    private OnCancelListener mListener;
+
+    /**
+     * Whether it is canceled
+     *
+     * @return
+     */
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * Throws if it is canceled
+     *
+     * @throws CancellationException it is canceled
+     */
+    public void throwIfCanceled() {
+        if (mCanceled) {
+            throw new CancellationException("The load was canceled");
+        }
+    }
+
+    /**
+     * Cancel, the listener is called on this thread. Does nothing if it is canceled already.
+     */
+    public void cancel() {
+        final OnCancelListener listener;
+        synchronized (this) {
+            if (mCanceled) {
+                return;
+            }
+            mCanceled = true;
+            listener = mListener;
+        }
+        if (null != listener) {
+            listener.onCancel();
+        }
+    }
+
+    /**
+     * Sets the listener to call when canceled, it is called right now if it is canceled already.
+     *
+     * @param listener null to remove
+     */
+    public void setOnCancelListener(OnCancelListener listener) {
+        synchronized (this) {
+            mListener = listener;
+            if (!mCanceled || null == listener) {
+                return;
+            }
+        }
+        listener.onCancel();
+    }
+
+    /**
+     * Listens the cancel.
+     */
+    public interface OnCancelListener {
+
+        /**
+         * Canceled
+         */
+        public void onCancel();
+    }
+}
@@ -28,12 +28,18 @@ public interface IPullView {
     public final static int PULL_TO_LOAD = 0x1;        //pull-to-refresh state
     public final static int LOADING = 0x2;            //laoding state(refreshing or loading more)
     public final static int IDEL = 0x3;                //idel state
+    public final static int LOAD_ERROR = 0x4;         //load more failed state, shown by the footer only
 
     /**
      * The ratio of the distance of the padding and sliding distance
      */
     public static final int OFFSET_RATIO = 3;
 
+    /**
+     * The default max distance(dp) of the nonlinear {@link PullResistance}
+     */
+    public static final int DEFAULT_MAX_PULL_DISTANCE = 200;
+
     public static final int ROTATE_ANIMATION_DURATION = 250;
 
 
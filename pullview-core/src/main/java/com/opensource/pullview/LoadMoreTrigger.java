@@ -0,0 +1,249 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+/**
+ * Usage Decides when the footer can be pulled and when to load more automatically.<br>
+ * <p>By default it loads when the scroll stopped at the very end, with a prefetch distance
+ * it loads as soon as the list gets that close to the end while scrolling or flinging.<br>
+ * <p>With adaptive prefetch the distance follows the load latency and the scroll speed, see {@link PrefetchEstimator}.<br>
+ * <p>It also decides when to load the page before the first one, when the list gets close to the top.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class LoadMoreTrigger implements IPullView {
+
+    private int mPrefetchItems = 0;
+    private float mPrefetchScreens = 0f;
+    private PrefetchEstimator mEstimator = null;
+    private int mPreviousPrefetchItems = 0;
+
+    /**
+     * Sets the prefetch distance in items, auto load when no more than this many items are left below the screen.
+     *
+     * @param items 0 to disable
+     */
+    public void setPrefetchItems(int items) {
+        if (items < 0) {
+            throw new IllegalArgumentException("items must not be negative, but is " + items);
+        }
+        this.mPrefetchItems = items;
+    }
+
+    /**
+     * Sets the prefetch distance in screen heights, auto load when no more than this much content is left below the screen.
+     *
+     * @param screens 0 to disable
+     */
+    public void setPrefetchScreens(float screens) {
+        if (screens < 0f) {
+            throw new IllegalArgumentException("screens must not be negative, but is " + screens);
+        }
+        this.mPrefetchScreens = screens;
+    }
+
+    /**
+     * Sets the prefetch distance of load previous in items, load when no more than this many items are left above the screen.
+     *
+     * @param items 0 to load when the first item is shown
+     */
+    public void setPreviousPrefetchItems(int items) {
+        if (items < 0) {
+            throw new IllegalArgumentException("items must not be negative, but is " + items);
+        }
+        this.mPreviousPrefetchItems = items;
+    }
+
+    public int getPreviousPrefetchItems() {
+        return mPreviousPrefetchItems;
+    }
+
+    /**
+     * Sets whether the prefetch distance in items adapts to the load latency and the scroll speed,
+     * the distance set by {@link #setPrefetchItems(int)} is the minimum then.
+     *
+     * @param enable
+     */
+    public void setAdaptivePrefetch(boolean enable) {
+        if (!enable) {
+            mEstimator = null;
+        } else if (null == mEstimator) {
+            mEstimator = new PrefetchEstimator();
+        }
+    }
+
+    /**
+     * Whether a prefetch distance is set
+     *
+     * @return
+     */
+    public boolean isPrefetchEnabled() {
+        return mPrefetchItems > 0 || mPrefetchScreens > 0f || null != mEstimator;
+    }
+
+    /**
+     * Gets the prefetch distance in items
+     *
+     * @return 0 if disabled
+     */
+    public int getPrefetchItems() {
+        return null == mEstimator ? mPrefetchItems : mEstimator.getPrefetchItems(Math.max(1, mPrefetchItems));
+    }
+
+    /**
+     * The list scrolled, measures the scroll speed for adaptive prefetch.
+     *
+     * @param metrics
+     * @param time    milliseconds, of a monotonic clock
+     */
+    public void onScroll(PullScrollMetrics metrics, long time) {
+        if (null != mEstimator) {
+            mEstimator.onScroll(metrics.getFirstVisibleItem(), time);
+        }
+    }
+
+    /**
+     * The scroll stopped, the prefetch distance goes back to the average scroll speed.
+     */
+    public void onScrollIdle() {
+        if (null != mEstimator) {
+            mEstimator.onScrollIdle();
+        }
+    }
+
+    /**
+     * Load more started, measures the latency for adaptive prefetch.
+     *
+     * @param time milliseconds, of the same clock as {@link #onScroll(PullScrollMetrics, long)}
+     */
+    public void onLoadStarted(long time) {
+        if (null != mEstimator) {
+            mEstimator.onLoadStarted(time);
+        }
+    }
+
+    /**
+     * Load more completed, measures the latency for adaptive prefetch.
+     *
+     * @param time milliseconds, of the same clock as {@link #onScroll(PullScrollMetrics, long)}
+     */
+    public void onLoadCompleted(long time) {
+        if (null != mEstimator) {
+            mEstimator.onLoadCompleted(time);
+        }
+    }
+
+    /**
+     * Load more canceled, it doesn't tell the latency.
+     */
+    public void onLoadCanceled() {
+        if (null != mEstimator) {
+            mEstimator.onLoadCanceled();
+        }
+    }
+
+    /**
+     * Whether the footer can be pulled up now.
+     *
+     * @param metrics
+     * @param mode             the mode to load more data
+     * @param enableLoadMore   there is more data to load
+     * @param enableOverScroll the footer can be over scrolled
+     * @return
+     */
+    public boolean canPull(PullScrollMetrics metrics, LoadMode mode, boolean enableLoadMore, boolean enableOverScroll) {
+        //可以向上pull的条件是
+        //1.列表已经滑动到底部
+        //2.mode == LoadMode.PULL_TO_LOAD时有更多数据可加载或者可以过度滑动（OverScroll）
+        // 或者mode == LoadMode.AUTO_LOAD时没有更多数据可加载但可以过度滑动（OverScroll）
+        //先判断模式，不满足时不用计算滑动位置
+        return (mode == LoadMode.PULL_TO_LOAD && (enableLoadMore || enableOverScroll)
+                || mode == LoadMode.AUTO_LOAD && !enableLoadMore && enableOverScroll)
+                && metrics.isAtBottom();
+    }
+
+    /**
+     * Whether to load more automatically, called when the scroll stopped.
+     *
+     * @param metrics
+     * @param mode           the mode to load more data
+     * @param enableLoadMore there is more data to load
+     * @param state          the state of the PullView
+     * @return
+     */
+    public boolean shouldAutoLoad(PullScrollMetrics metrics, LoadMode mode, boolean enableLoadMore, int state) {
+        return state == IDEL && enableLoadMore && mode == LoadMode.AUTO_LOAD && metrics.isScrolledToEnd();
+    }
+
+    /**
+     * Whether to load more automatically before reaching the end, called on every scroll.
+     *
+     * @param metrics
+     * @param mode           the mode to load more data
+     * @param enableLoadMore there is more data to load
+     * @param state          the state of the PullView
+     * @return false if no prefetch distance is set
+     */
+    public boolean shouldPrefetch(PullScrollMetrics metrics, LoadMode mode, boolean enableLoadMore, int state) {
+        return shouldPrefetch(metrics, 0, 0, mode, enableLoadMore, state);
+    }
+
+    /**
+     * Whether to load more automatically before reaching the end, called on every scroll.
+     *
+     * @param metrics
+     * @param headerCount    the header views above the items
+     * @param footerCount    the footer views below the items
+     * @param mode           the mode to load more data
+     * @param enableLoadMore there is more data to load
+     * @param state          the state of the PullView
+     * @return false if no prefetch distance is set, or there is no item
+     */
+    public boolean shouldPrefetch(PullScrollMetrics metrics, int headerCount, int footerCount, LoadMode mode,
+                                  boolean enableLoadMore, int state) {
+        if (state != IDEL || !enableLoadMore || mode != LoadMode.AUTO_LOAD
+                || metrics.getTotalItemCount() - headerCount - footerCount <= 0) {
+            return false;
+        }
+        final int items = getPrefetchItems();
+        if (items > 0 && metrics.getTotalItemCount() - footerCount - metrics.getFirstVisibleItem()
+                - metrics.getVisibleItemCount() <= items) {
+            return true;
+        }
+        if (mPrefetchScreens > 0f) {
+            final int extent = metrics.getScrollExtent();
+            return metrics.getScrollRange() - metrics.getScrollOffset() - extent <= extent * mPrefetchScreens;
+        }
+        return false;
+    }
+
+    /**
+     * Whether to load the page before the first one, called on every scroll.
+     *
+     * @param metrics
+     * @param headerCount        the header views above the items
+     * @param enableLoadPrevious there is a page before and it's not loading
+     * @param state              the state of the PullView
+     * @return
+     */
+    public boolean shouldLoadPrevious(PullScrollMetrics metrics, int headerCount, boolean enableLoadPrevious,
+                                      int state) {
+        return state == IDEL && enableLoadPrevious && metrics.getTotalItemCount() > headerCount
+                && metrics.getFirstVisibleItem() - headerCount <= mPreviousPrefetchItems;
+    }
+}
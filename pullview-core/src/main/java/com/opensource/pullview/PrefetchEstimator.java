@@ -0,0 +1,174 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+/**
+ * Usage Estimates the prefetch distance from the load latency and the scroll speed.<br>
+ * <p>Measures how long a load more takes, and how many items per second the user scrolls through,
+ * the prefetch distance is the items the user will pass while the next page is loading, with some margin.
+ * A slow network gets an earlier prefetch, a fast one loads closer to the end.<br>
+ * <p>Both are smoothed with an exponential moving average, nothing is allocated.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PrefetchEstimator {
+
+    /**
+     * The weight of a new latency in the average
+     */
+    private static final float LATENCY_WEIGHT = 0.3f;
+    /**
+     * The weight of a new scroll speed in the average
+     */
+    private static final float SPEED_WEIGHT = 0.2f;
+    /**
+     * The scroll speed is measured over at least this time(ms)
+     */
+    private static final int SPEED_INTERVAL = 50;
+    /**
+     * Scroll callbacks further apart than this(ms) start a new measurement
+     */
+    private static final int SPEED_IDLE = 500;
+    /**
+     * Load this much earlier than the estimate
+     */
+    private static final float SAFETY_FACTOR = 1.5f;
+
+    private static final int DEFAULT_MAX_ITEMS = 100;
+
+    private int mMaxItems = DEFAULT_MAX_ITEMS;
+
+    private long mLoadStartTime = -1;
+    private float mLatency = 0f;
+
+    private int mLastItem = -1;
+    private long mLastTime = 0;
+    private float mSpeed = 0f;
+    private float mAverageSpeed = 0f;
+
+    /**
+     * Sets the maximum prefetch distance in items
+     *
+     * @param items
+     */
+    public void setMaxItems(int items) {
+        if (items <= 0) {
+            throw new IllegalArgumentException("items must be greater than 0, but is " + items);
+        }
+        this.mMaxItems = items;
+    }
+
+    /**
+     * Load more started
+     *
+     * @param time milliseconds, of a monotonic clock
+     */
+    public void onLoadStarted(long time) {
+        mLoadStartTime = time;
+    }
+
+    /**
+     * Load more completed
+     *
+     * @param time milliseconds, of the same clock as {@link #onLoadStarted(long)}
+     */
+    public void onLoadCompleted(long time) {
+        if (mLoadStartTime < 0) {
+            return;
+        }
+        final long latency = time - mLoadStartTime;
+        mLoadStartTime = -1;
+        if (latency < 0) {
+            return;
+        }
+        mLatency = mLatency <= 0f ? latency : mLatency + (latency - mLatency) * LATENCY_WEIGHT;
+    }
+
+    /**
+     * Load more canceled, the load is not measured
+     */
+    public void onLoadCanceled() {
+        mLoadStartTime = -1;
+    }
+
+    /**
+     * The list scrolled
+     *
+     * @param firstVisibleItem
+     * @param time             milliseconds, of the same clock as {@link #onLoadStarted(long)}
+     */
+    public void onScroll(int firstVisibleItem, long time) {
+        if (mLastItem < 0 || time - mLastTime > SPEED_IDLE || firstVisibleItem < mLastItem) {
+            // Start over, scrolling back doesn't use up any item
+            mLastItem = firstVisibleItem;
+            mLastTime = time;
+            mSpeed = 0f;
+            return;
+        }
+        final long duration = time - mLastTime;
+        if (duration < SPEED_INTERVAL) {
+            return;
+        }
+        mSpeed = (firstVisibleItem - mLastItem) * 1000f / duration;
+        if (mSpeed > 0f) {
+            mAverageSpeed = mAverageSpeed <= 0f ? mSpeed : mAverageSpeed + (mSpeed - mAverageSpeed) * SPEED_WEIGHT;
+        }
+        mLastItem = firstVisibleItem;
+        mLastTime = time;
+    }
+
+    /**
+     * The scroll stopped, the speed of the last fling doesn't count any more.
+     */
+    public void onScrollIdle() {
+        mLastItem = -1;
+        mSpeed = 0f;
+    }
+
+    /**
+     * Gets the average load latency
+     *
+     * @return milliseconds, 0 if no load completed yet
+     */
+    public float getLatency() {
+        return mLatency;
+    }
+
+    /**
+     * Gets the scroll speed, the current one while flinging faster than the average
+     *
+     * @return items per second
+     */
+    public float getSpeed() {
+        return Math.max(mSpeed, mAverageSpeed);
+    }
+
+    /**
+     * Gets the prefetch distance
+     *
+     * @param minItems the distance used until a load completed, and the minimum
+     * @return items
+     */
+    public int getPrefetchItems(int minItems) {
+        if (mLatency <= 0f) {
+            return minItems;
+        }
+        final int items = (int) Math.ceil(mLatency * getSpeed() * SAFETY_FACTOR / 1000f);
+        return Math.max(minItems, Math.min(mMaxItems, items));
+    }
+}
@@ -0,0 +1,570 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+/**
+ * Usage The pull gesture state machine shared by all the PullView widgets.<br>
+ * <p>The widget feeds the touch positions in, the engine drives the
+ * {@link IPullView} states ({@link #IDEL} -> {@link #PULL_TO_LOAD} -> {@link #RELEASE_TO_LOAD} -> {@link #LOADING})
+ * with a transition table and reports the result through {@link Callback}.<br>
+ * <p>While loading, the edges can't be pulled, except the top one while the bottom one is loading:
+ * a refresh supersedes a load more. The pull starts from {@link #IDEL}, the load goes back to
+ * {@link #LOADING} if the pull doesn't load.<br>
+ * <p>The engine works on primitive values only and allocates nothing while tracking a gesture,<br>
+ * it has no android dependency and can be run on a plain JVM.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PullGestureEngine implements IPullView {
+
+    /**
+     * No edge is being pulled
+     */
+    public static final int EDGE_NONE = -1;
+    /**
+     * The top edge(pull down, header)
+     */
+    public static final int EDGE_TOP = 0;
+    /**
+     * The bottom edge(pull up, footer)
+     */
+    public static final int EDGE_BOTTOM = 1;
+
+    /**
+     * Moved toward the edge, but not far enough to load
+     */
+    private static final int EVENT_PULL = 0;
+    /**
+     * Moved over the threshold
+     */
+    private static final int EVENT_OVER = 1;
+    /**
+     * Moved back to the start position(or beyond)
+     */
+    private static final int EVENT_BACK = 2;
+    /**
+     * Finger released
+     */
+    private static final int EVENT_RELEASE = 3;
+
+    private static final int EVENT_COUNT = 4;
+
+    /**
+     * Marks a transition which is decided by {@link Callback#onPullRelease(int)}
+     */
+    private static final int TRIGGER = -1;
+
+    /**
+     * The samples kept to compute the velocity
+     */
+    private static final int SAMPLE_COUNT = 16;
+    /**
+     * Only the samples in this time(ms) before the latest one are used to compute the velocity
+     */
+    private static final int VELOCITY_WINDOW = 100;
+    /**
+     * A fling loads when pulled over threshold / FLING_DISTANCE_RATIO
+     */
+    private static final int FLING_DISTANCE_RATIO = 2;
+
+    /**
+     * The transition table, indexed by [state * EVENT_COUNT + event].<br>
+     * <p>Rows follow the values of {@link #RELEASE_TO_LOAD}, {@link #PULL_TO_LOAD}, {@link #LOADING} and {@link #IDEL}.
+     */
+    private static final int[] TRANSITIONS = {
+            //EVENT_PULL,   EVENT_OVER,      EVENT_BACK, EVENT_RELEASE
+            PULL_TO_LOAD, RELEASE_TO_LOAD, IDEL, TRIGGER,   // RELEASE_TO_LOAD
+            PULL_TO_LOAD, RELEASE_TO_LOAD, IDEL, IDEL,      // PULL_TO_LOAD
+            LOADING, LOADING, LOADING, LOADING,             // LOADING
+            PULL_TO_LOAD, PULL_TO_LOAD, IDEL, IDEL,         // IDEL
+    };
+
+    private final Callback mCallback;
+
+    private PullResistance mResistance = PullResistance.linear(OFFSET_RATIO);
+
+    private int mState = IDEL;
+    private int mEdge = EDGE_NONE;
+
+    private int mStartY;
+    private int mLastDistance;
+    private boolean mTracking = false;
+    private boolean mDragged = false;
+    private int mTouchSlop = 0;
+    private boolean mReleased = false;
+    private boolean mTopOnDown = false;
+    private boolean mBottomOnDown = false;
+    private boolean mPullWhileLoading = false;
+    /**
+     * The edge of the load going on, {@link #EDGE_NONE} if not known
+     */
+    private int mLoadingEdge = EDGE_NONE;
+    /**
+     * The top edge is pulled while the bottom one is loading
+     */
+    private boolean mSuperseding = false;
+
+    /**
+     * Ring buffer of the touch samples of current gesture
+     */
+    private final int[] mSampleYs = new int[SAMPLE_COUNT];
+    private final long[] mSampleTimes = new long[SAMPLE_COUNT];
+    private int mSampleIndex = -1;
+    private int mSampleSize = 0;
+
+    private float mFlingVelocity = 0f;
+    private float mReleaseVelocity = 0f;
+
+    /**
+     * Constructor
+     *
+     * @param callback
+     */
+    public PullGestureEngine(Callback callback) {
+        this.mCallback = callback;
+    }
+
+    /**
+     * Touch down
+     *
+     * @param y
+     * @param time the event time in milliseconds
+     */
+    public void onDown(int y, long time) {
+        mSampleSize = 0;
+        mReleaseVelocity = 0f;
+        mReleased = false;
+        addSample(y, time);
+        mStartY = y;
+        mLastDistance = 0;
+        mTracking = true;
+        mDragged = false;
+        mEdge = EDGE_NONE;
+        mTopOnDown = mCallback.canPull(EDGE_TOP);
+        mBottomOnDown = mCallback.canPull(EDGE_BOTTOM);
+    }
+
+    /**
+     * Touch move, call it for every sample, the historical ones included, in time order.
+     *
+     * @param y
+     * @param time the event time in milliseconds
+     * @return true if the pull gesture is going on
+     */
+    public boolean onMove(int y, long time) {
+        if (!mTracking) {
+            // ACTION_DOWN was consumed by someone else
+            onDown(y, time);
+        } else {
+            addSample(y, time);
+        }
+        if (mEdge == EDGE_NONE && !attachEdge(y)) {
+            return false;
+        }
+
+        final int moveY = mEdge == EDGE_TOP ? y - mStartY : mStartY - y;
+        final int distance = Math.round(mResistance.apply(moveY));
+        mLastDistance = distance > 0 ? distance : 0;
+
+        if (mState == LOADING && mEdge == EDGE_TOP && mLoadingEdge == EDGE_BOTTOM) {
+            // A refresh supersedes the load more, the load goes on unless released to refresh
+            mState = IDEL;
+            mSuperseding = true;
+        }
+        if (mState == LOADING) {
+            if (mPullWhileLoading && moveY > 0) {
+                mCallback.onPullChanged(mEdge, LOADING, LOADING, mLastDistance);
+            }
+            return false;
+        }
+
+        final int event;
+        if (moveY <= 0) {
+            event = EVENT_BACK;
+        } else if (distance >= mCallback.getPullThreshold(mEdge)) {
+            event = EVENT_OVER;
+        } else {
+            event = EVENT_PULL;
+        }
+        final int edge = mEdge;
+        transit(mState, TRANSITIONS[mState * EVENT_COUNT + event]);
+        if (mState == IDEL && event == EVENT_BACK) {
+            // Back to the start, let the list scroll(or pull the other edge) again.
+            mEdge = EDGE_NONE;
+            restoreLoading();
+        }
+        return edge != EDGE_NONE && mState != IDEL;
+    }
+
+    /**
+     * Touch move taken by someone else(a nested scrolling parent), it doesn't start the pull.<br>
+     * <p>If the edge can be pulled later in the gesture, the pull starts from there.
+     *
+     * @param y
+     * @param time the event time in milliseconds
+     */
+    public void onMoveConsumed(int y, long time) {
+        if (!mTracking) {
+            onDown(y, time);
+        } else {
+            addSample(y, time);
+        }
+        if (mEdge != EDGE_NONE) {
+            return;
+        }
+        mDragged = true;
+        mStartY = y;
+        mTopOnDown = false;
+        mBottomOnDown = false;
+    }
+
+    /**
+     * The active pointer changed(a finger was put down or lifted while others stay),
+     * the pull goes on from the position of the new pointer without a jump.
+     *
+     * @param y    the position of the new active pointer
+     * @param time the event time in milliseconds
+     */
+    public void onPointerChanged(int y, long time) {
+        if (!mTracking) {
+            return;
+        }
+        // Shift the start position with the pointer, the distance is kept.
+        mStartY += y - mSampleYs[mSampleIndex];
+        // The samples of the old pointer would be read as a jump, start over.
+        mSampleSize = 0;
+        addSample(y, time);
+    }
+
+    /**
+     * Touch canceled(the parent took the gesture over), the header/footer goes back as not released
+     * over the threshold, loading is never started by a canceled gesture.
+     */
+    public void onCancel() {
+        if (mEdge != EDGE_NONE) {
+            mReleaseVelocity = 0f;
+            mReleased = true;
+            if (mState == LOADING) {
+                if (mPullWhileLoading) {
+                    mCallback.onPullChanged(mEdge, LOADING, LOADING, mLastDistance);
+                }
+            } else {
+                transit(mState, IDEL);
+            }
+            mLastDistance = 0;
+        }
+        reset();
+    }
+
+    /**
+     * Touch up, the release velocity is computed from the samples passed in.
+     */
+    public void onUp() {
+        onUp(getVelocity());
+    }
+
+    /**
+     * Touch up
+     *
+     * @param velocity the release velocity, pixels per second, positive when moving down
+     */
+    public void onUp(float velocity) {
+        if (mEdge != EDGE_NONE) {
+            mReleaseVelocity = mEdge == EDGE_TOP ? velocity : -velocity;
+            mReleased = true;
+            if (mState == LOADING) {
+                if (mPullWhileLoading) {
+                    mCallback.onPullChanged(mEdge, LOADING, LOADING, mLastDistance);
+                }
+            } else {
+                final int lastState = mState;
+                int next = TRANSITIONS[(isFling() ? RELEASE_TO_LOAD : lastState) * EVENT_COUNT + EVENT_RELEASE];
+                if (next == TRIGGER) {
+                    next = mCallback.onPullRelease(mEdge) ? LOADING : IDEL;
+                }
+                transit(lastState, next);
+            }
+            mLastDistance = 0;
+        }
+        reset();
+    }
+
+    /**
+     * Gets current state
+     *
+     * @return one of {@link #IDEL}, {@link #PULL_TO_LOAD}, {@link #RELEASE_TO_LOAD} and {@link #LOADING}
+     */
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * Sets current state, used when loading is started or completed outside of a gesture.
+     *
+     * @param state
+     */
+    public void setState(int state) {
+        setState(state, EDGE_NONE);
+    }
+
+    /**
+     * Sets current state, used when loading is started or completed outside of a gesture.
+     *
+     * @param state
+     * @param edge  the edge loading in {@link #LOADING} state, a load of {@link #EDGE_BOTTOM}
+     *              can be superseded by pulling the top edge
+     */
+    public void setState(int state, int edge) {
+        this.mState = state;
+        this.mLoadingEdge = state == LOADING ? edge : EDGE_NONE;
+        this.mSuperseding = false;
+    }
+
+    /**
+     * Gets the edge being pulled
+     *
+     * @return {@link #EDGE_TOP}, {@link #EDGE_BOTTOM} or {@link #EDGE_NONE}
+     */
+    public int getEdge() {
+        return mEdge;
+    }
+
+    /**
+     * Gets the last pull distance
+     *
+     * @return
+     */
+    public int getPullDistance() {
+        return mLastDistance;
+    }
+
+    /**
+     * Gets the velocity of current gesture
+     *
+     * @return pixels per second, positive when moving down
+     */
+    public float getVelocity() {
+        if (mSampleSize < 2) {
+            return 0f;
+        }
+        final int newest = mSampleIndex;
+        final long time = mSampleTimes[newest];
+        int oldest = newest;
+        for (int i = 1; i < mSampleSize; i++) {
+            final int index = (newest - i + SAMPLE_COUNT) % SAMPLE_COUNT;
+            if (time - mSampleTimes[index] > VELOCITY_WINDOW) {
+                break;
+            }
+            oldest = index;
+        }
+        final long duration = time - mSampleTimes[oldest];
+        if (duration <= 0) {
+            return 0f;
+        }
+        return (mSampleYs[newest] - mSampleYs[oldest]) * 1000f / duration;
+    }
+
+    /**
+     * Whether current gesture was released.<br>
+     * <p>Used in {@link Callback#onPullChanged(int, int, int, int)} to tell a release from a move,
+     * the distance is the one at release then, settle from there.
+     *
+     * @return
+     */
+    public boolean isReleased() {
+        return mReleased;
+    }
+
+    /**
+     * Gets the velocity when the finger was released
+     *
+     * @return pixels per second, positive when moving away from the edge(pulling further)
+     */
+    public float getReleaseVelocity() {
+        return mReleaseVelocity;
+    }
+
+    /**
+     * Gets the release velocity in pull distance, used to settle the header/footer
+     *
+     * @return pixels of pull distance per second, positive when moving away from the edge
+     */
+    public float getReleasePullVelocity() {
+        return mReleaseVelocity / mResistance.getRatio();
+    }
+
+    /**
+     * Sets the minimum release velocity to load with a fling.<br>
+     * <p>Released in {@link #PULL_TO_LOAD} state faster than this, and pulled over half of the threshold,
+     * it loads as if released in {@link #RELEASE_TO_LOAD} state.
+     *
+     * @param velocity pixels per second, 0 to disable
+     */
+    public void setFlingVelocity(float velocity) {
+        this.mFlingVelocity = velocity;
+    }
+
+    /**
+     * Sets the resistance of the pull, default is linear with {@link #OFFSET_RATIO}
+     *
+     * @param resistance
+     */
+    public void setResistance(PullResistance resistance) {
+        if (null == resistance) {
+            throw new IllegalArgumentException("resistance can not be null");
+        }
+        this.mResistance = resistance;
+    }
+
+    /**
+     * Sets the distance a touch can wander before the pull starts, a tap or a small jitter never pulls.<br>
+     * <p>The pull distance is counted from the slop, it doesn't jump when the pull starts.
+     *
+     * @param slop pixels, default is 0
+     */
+    public void setTouchSlop(int slop) {
+        this.mTouchSlop = slop;
+    }
+
+    /**
+     * Sets whether reports the pull distance in {@link #LOADING} state.
+     *
+     * @param enable
+     */
+    public void setPullWhileLoading(boolean enable) {
+        this.mPullWhileLoading = enable;
+    }
+
+    /**
+     * Stop tracking current gesture
+     */
+    public void reset() {
+        mTracking = false;
+        mEdge = EDGE_NONE;
+        mTopOnDown = false;
+        mBottomOnDown = false;
+        restoreLoading();
+    }
+
+    /**
+     * The pull superseding the load more ended without loading, the load more goes on.
+     */
+    private void restoreLoading() {
+        if (mSuperseding) {
+            mSuperseding = false;
+            if (mState == IDEL) {
+                mState = LOADING;
+            }
+        }
+    }
+
+    private boolean isFling() {
+        return mFlingVelocity > 0f && mState == PULL_TO_LOAD && mReleaseVelocity >= mFlingVelocity
+                && mLastDistance * FLING_DISTANCE_RATIO >= mCallback.getPullThreshold(mEdge);
+    }
+
+    private void addSample(int y, long time) {
+        mSampleIndex = (mSampleIndex + 1) % SAMPLE_COUNT;
+        mSampleYs[mSampleIndex] = y;
+        mSampleTimes[mSampleIndex] = time;
+        if (mSampleSize < SAMPLE_COUNT) {
+            mSampleSize++;
+        }
+    }
+
+    private boolean attachEdge(int y) {
+        if (!mDragged) {
+            final int slopY = y - mStartY;
+            if (Math.abs(slopY) <= mTouchSlop) {
+                return false;
+            }
+            mDragged = true;
+            mStartY += slopY > 0 ? mTouchSlop : -mTouchSlop;
+        }
+        final int moveY = y - mStartY;
+        if (moveY > 0 && mCallback.canPull(EDGE_TOP)) {
+            if (!mTopOnDown) {
+                // Reached the top while scrolling, start pulling from here.
+                mStartY = y;
+                mTopOnDown = true;
+                mBottomOnDown = false;
+                return false;
+            }
+            mEdge = EDGE_TOP;
+        } else if (moveY < 0 && mCallback.canPull(EDGE_BOTTOM)) {
+            if (!mBottomOnDown) {
+                mStartY = y;
+                mBottomOnDown = true;
+                mTopOnDown = false;
+                return false;
+            }
+            mEdge = EDGE_BOTTOM;
+        }
+        return mEdge != EDGE_NONE;
+    }
+
+    private void transit(int lastState, int state) {
+        mState = state;
+        if (state == LOADING) {
+            mLoadingEdge = mEdge;
+            mSuperseding = false;
+        }
+        mCallback.onPullChanged(mEdge, state, lastState, mLastDistance);
+    }
+
+    /**
+     * The callback of the pull gesture, implemented by the widget.
+     */
+    public interface Callback {
+
+        /**
+         * Whether the edge can be pulled now(scrolled to the edge and enabled)
+         *
+         * @param edge {@link #EDGE_TOP} or {@link #EDGE_BOTTOM}
+         * @return
+         */
+        public boolean canPull(int edge);
+
+        /**
+         * Gets the pull distance to enter {@link #RELEASE_TO_LOAD}
+         *
+         * @param edge
+         * @return
+         */
+        public int getPullThreshold(int edge);
+
+        /**
+         * The state or the pull distance changed, update the header or footer here.
+         *
+         * @param edge
+         * @param state     current state
+         * @param lastState the state before this change
+         * @param distance  the pull distance, the move with the {@link PullResistance} applied,
+         *                  the distance at release if {@link #isReleased()}
+         */
+        public void onPullChanged(int edge, int state, int lastState, int distance);
+
+        /**
+         * Released in {@link #RELEASE_TO_LOAD} state.
+         *
+         * @param edge
+         * @return true if loading was started and the engine should enter {@link #LOADING}
+         */
+        public boolean onPullRelease(int edge);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+/**
+ * Usage Maps the finger move distance to the pull distance.<br>
+ * <p>{@link #TYPE_LINEAR} divides by the ratio, {@link #TYPE_LOGARITHMIC} and {@link #TYPE_ELASTIC}
+ * start with the same slope and get heavier the further it is pulled.
+ * The curves are computed once into a lookup table, {@link #apply(int)} is O(1) and allocates nothing.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PullResistance {
+
+    /**
+     * distance = move / ratio, no more than the max distance if it's set
+     */
+    public static final int TYPE_LINEAR = 0;
+    /**
+     * distance = max * ln(1 + move / (ratio * max)), keeps growing slower and slower
+     */
+    public static final int TYPE_LOGARITHMIC = 1;
+    /**
+     * distance = max * move / (move + ratio * max), never gets over max
+     */
+    public static final int TYPE_ELASTIC = 2;
+
+    /**
+     * Entries of the lookup table
+     */
+    private static final int TABLE_SIZE = 256;
+    /**
+     * The lookup table covers moves up to ratio * max * TABLE_RANGE
+     */
+    private static final int TABLE_RANGE = 8;
+
+    private final int mType;
+    private final float mRatio;
+    /**
+     * The limit of the pull distance, 0 for no limit
+     */
+    private final int mMaxDistance;
+    private final float[] mTable;
+    private final float mStep;
+
+    private PullResistance(int type, float ratio, int maxDistance) {
+        this.mType = type;
+        this.mRatio = ratio;
+        if (type == TYPE_LINEAR) {
+            mMaxDistance = Math.max(0, maxDistance);
+            mTable = null;
+            mStep = 0f;
+            return;
+        }
+        // The elastic curve only comes close to max, it must not go over it out of the table either
+        mMaxDistance = type == TYPE_ELASTIC ? maxDistance : 0;
+        mTable = new float[TABLE_SIZE + 1];
+        mStep = ratio * maxDistance * TABLE_RANGE / TABLE_SIZE;
+        final double scale = ratio * maxDistance;
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            final double move = i * mStep;
+            if (type == TYPE_LOGARITHMIC) {
+                mTable[i] = (float) (maxDistance * Math.log(1d + move / scale));
+            } else {
+                mTable[i] = (float) (maxDistance * move / (move + scale));
+            }
+        }
+    }
+
+    /**
+     * Create a resistance
+     *
+     * @param type        {@link #TYPE_LINEAR}, {@link #TYPE_LOGARITHMIC} or {@link #TYPE_ELASTIC}
+     * @param ratio       move / distance at the start of the pull, must be greater than 0
+     * @param maxDistance the scale of the curve in pixels, the limit of {@link #TYPE_LINEAR}(0 for no limit)
+     * @return
+     */
+    public static PullResistance create(int type, float ratio, int maxDistance) {
+        if (ratio <= 0f) {
+            throw new IllegalArgumentException("ratio must be greater than 0, but is " + ratio);
+        }
+        if (type != TYPE_LINEAR && type != TYPE_LOGARITHMIC && type != TYPE_ELASTIC) {
+            throw new IllegalArgumentException("Unknown resistance type " + type);
+        }
+        if (type != TYPE_LINEAR && maxDistance <= 0) {
+            throw new IllegalArgumentException("maxDistance must be greater than 0, but is " + maxDistance);
+        }
+        return new PullResistance(type, ratio, maxDistance);
+    }
+
+    /**
+     * Create a linear resistance
+     *
+     * @param ratio move / distance
+     * @return
+     */
+    public static PullResistance linear(float ratio) {
+        return create(TYPE_LINEAR, ratio, 0);
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public float getRatio() {
+        return mRatio;
+    }
+
+    /**
+     * Gets the pull distance of a move
+     *
+     * @param move the finger move distance in pixels
+     * @return the pull distance in pixels
+     */
+    public float apply(int move) {
+        if (null == mTable || move <= 0) {
+            final float distance = move / mRatio;
+            return mMaxDistance > 0 ? Math.min(distance, mMaxDistance) : distance;
+        }
+        final float position = move / mStep;
+        final int index = (int) position;
+        if (index >= TABLE_SIZE) {
+            // Out of the table, go on with the slope of the last entry
+            final float slope = (mTable[TABLE_SIZE] - mTable[TABLE_SIZE - 1]) / mStep;
+            final float distance = mTable[TABLE_SIZE] + (move - TABLE_SIZE * mStep) * slope;
+            return mMaxDistance > 0 ? Math.min(distance, mMaxDistance) : distance;
+        }
+        return mTable[index] + (mTable[index + 1] - mTable[index]) * (position - index);
+    }
+}
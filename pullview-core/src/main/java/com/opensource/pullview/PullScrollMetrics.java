@@ -0,0 +1,189 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+/**
+ * Usage The scroll position of a PullView, in plain values.<br>
+ * <p>List widgets fill in the visible items and the scroll bar values, scroll widgets only the scroll bar values.<br>
+ * <p>The scroll bar values can be read from a {@link Source} on demand, the widget calls {@link #invalidateScroll()}
+ * when it scrolled, and they are computed once when somebody needs them.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PullScrollMetrics {
+
+    /**
+     * Value of {@link #getFirstVisibleItem()} when the widget has no items(like a ScrollView)
+     */
+    public static final int NO_ITEM = -1;
+
+    private int mFirstVisibleItem = NO_ITEM;
+    private int mVisibleItemCount = 0;
+    private int mTotalItemCount = 0;
+
+    private int mScrollOffset = 0;
+    private int mScrollExtent = 0;
+    private int mScrollRange = 0;
+
+    private Source mSource;
+    private boolean mScrollValid = true;
+
+    /**
+     * Update the visible items, used by list widgets.
+     *
+     * @param firstVisibleItem
+     * @param visibleItemCount
+     * @param totalItemCount
+     */
+    public void setItems(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        this.mFirstVisibleItem = firstVisibleItem;
+        this.mVisibleItemCount = visibleItemCount;
+        this.mTotalItemCount = totalItemCount;
+    }
+
+    /**
+     * Update the scroll bar values.
+     *
+     * @param offset the scroll offset(computeVerticalScrollOffset)
+     * @param extent the visible extent(computeVerticalScrollExtent)
+     * @param range  the whole range(computeVerticalScrollRange)
+     */
+    public void setScroll(int offset, int extent, int range) {
+        this.mScrollOffset = offset;
+        this.mScrollExtent = extent;
+        this.mScrollRange = range;
+        this.mScrollValid = true;
+    }
+
+    /**
+     * Sets the source of the scroll bar values, they are read from it after {@link #invalidateScroll()}
+     *
+     * @param source
+     */
+    public void setSource(Source source) {
+        this.mSource = source;
+        invalidateScroll();
+    }
+
+    /**
+     * The widget scrolled, the scroll bar values are read from the {@link Source} again when needed.
+     */
+    public void invalidateScroll() {
+        if (null != mSource) {
+            mScrollValid = false;
+        }
+    }
+
+    public int getFirstVisibleItem() {
+        return mFirstVisibleItem;
+    }
+
+    public int getVisibleItemCount() {
+        return mVisibleItemCount;
+    }
+
+    public int getTotalItemCount() {
+        return mTotalItemCount;
+    }
+
+    public int getScrollOffset() {
+        ensureScroll();
+        return mScrollOffset;
+    }
+
+    public int getScrollExtent() {
+        ensureScroll();
+        return mScrollExtent;
+    }
+
+    public int getScrollRange() {
+        ensureScroll();
+        return mScrollRange;
+    }
+
+    /**
+     * Scrolled to the top, the header can be pulled
+     *
+     * @return
+     */
+    public boolean isAtTop() {
+        return mFirstVisibleItem == 0 || getScrollOffset() <= 0;
+    }
+
+    /**
+     * The last item is visible and the content is longer than the view, the footer can be pulled
+     *
+     * @return
+     */
+    public boolean isAtBottom() {
+        if (mFirstVisibleItem == NO_ITEM) {
+            return isScrolledToEnd();
+        }
+        return mFirstVisibleItem + mVisibleItemCount == mTotalItemCount && getScrollRange() > getScrollExtent();
+    }
+
+    /**
+     * Whether the last item is visible, the content may be shorter than the view.
+     *
+     * @return
+     */
+    public boolean isLastItemVisible() {
+        return mFirstVisibleItem + mVisibleItemCount >= mTotalItemCount;
+    }
+
+    /**
+     * Scrolled to the very end of the content
+     *
+     * @return
+     */
+    public boolean isScrolledToEnd() {
+        ensureScroll();
+        return mScrollRange == mScrollOffset + mScrollExtent;
+    }
+
+    private void ensureScroll() {
+        if (mScrollValid) {
+            return;
+        }
+        mScrollValid = true;
+        mScrollOffset = mSource.computeScrollOffset();
+        mScrollExtent = mSource.computeScrollExtent();
+        mScrollRange = mSource.computeScrollRange();
+    }
+
+    /**
+     * Computes the scroll bar values, implemented by the widget.
+     */
+    public interface Source {
+
+        /**
+         * @return the scroll offset(computeVerticalScrollOffset)
+         */
+        public int computeScrollOffset();
+
+        /**
+         * @return the visible extent(computeVerticalScrollExtent)
+         */
+        public int computeScrollExtent();
+
+        /**
+         * @return the whole range(computeVerticalScrollRange)
+         */
+        public int computeScrollRange();
+    }
+}
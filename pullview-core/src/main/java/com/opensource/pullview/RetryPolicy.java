@@ -0,0 +1,114 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import java.util.Random;
+
+/**
+ * Usage Decides whether to retry a failed load, and how long to wait before.<br>
+ * <p>The delay grows exponentially with the retries, up to the max delay, and half of it is random(jitter),
+ * so many clients failing at the same time don't retry at the same time.<br>
+ * <p>Subclass it to retry only some errors, or to wait differently.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /**
+     * The default delay(ms) before the first retry
+     */
+    public static final long DEFAULT_BASE_DELAY = 1000;
+
+    /**
+     * The default max delay(ms) before a retry
+     */
+    public static final long DEFAULT_MAX_DELAY = 30000;
+
+    private final int mMaxRetries;
+    private final long mBaseDelay;
+    private final long mMaxDelay;
+    private final Random mRandom = new Random();
+
+    /**
+     * Constructor, with the default retries and delays
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxRetries the retries after the first load, 0 to never retry
+     * @param baseDelay  the delay(ms) before the first retry, doubled by every retry
+     * @param maxDelay   the max delay(ms) before a retry
+     */
+    public RetryPolicy(int maxRetries, long baseDelay, long maxDelay) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries can not be negative, but is " + maxRetries);
+        }
+        if (baseDelay <= 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("baseDelay must be greater than 0 and not greater than maxDelay");
+        }
+        this.mMaxRetries = maxRetries;
+        this.mBaseDelay = baseDelay;
+        this.mMaxDelay = maxDelay;
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    /**
+     * Whether to retry
+     *
+     * @param retry the retries done before, 0 after the first load failed
+     * @return
+     */
+    public boolean shouldRetry(int retry) {
+        return retry < mMaxRetries;
+    }
+
+    /**
+     * Gets the delay before the retry
+     *
+     * @param retry the retries done before, 0 after the first load failed
+     * @return milliseconds
+     */
+    public long getDelay(int retry) {
+        return getDelay(retry, mRandom.nextFloat());
+    }
+
+    /**
+     * Gets the delay before the retry
+     *
+     * @param retry  the retries done before
+     * @param random the jitter, from 0 to 1
+     * @return milliseconds, from half of the exponential delay to the whole
+     */
+    public long getDelay(int retry, float random) {
+        long delay = mMaxDelay;
+        // Compare before shifting, the shifted delay may overflow
+        if (retry < 63 && mBaseDelay <= mMaxDelay >> retry) {
+            delay = mBaseDelay << retry;
+        }
+        return delay / 2 + (long) (delay / 2 * random);
+    }
+}
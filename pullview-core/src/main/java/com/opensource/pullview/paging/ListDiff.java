@@ -0,0 +1,249 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Usage Computes the difference between an old list and a new one, to update only the changed rows.<br>
+ * <p>Myers' diff algorithm in linear space: the middle snake of a range splits it into two smaller ones,
+ * the items on the snakes are the same items in both lists. O((N+M)D) time and O(N+M) memory,
+ * D is the count of the removed and inserted items, so a refresh adding a few items on top is fast.<br>
+ * <p>Runs on any thread, the callback is called on it.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public final class ListDiff {
+
+    private static final int NO_POSITION = -1;
+
+    private final int[] mOldToNew;
+    private final int[] mNewToOld;
+    private final boolean[] mChanged;
+
+    private ListDiff(int[] oldToNew, int[] newToOld, boolean[] changed) {
+        this.mOldToNew = oldToNew;
+        this.mNewToOld = newToOld;
+        this.mChanged = changed;
+    }
+
+    /**
+     * Compute the difference
+     *
+     * @param callback compares the items of the lists
+     * @return
+     */
+    public static ListDiff compute(Callback callback) {
+        final int oldSize = callback.getOldSize();
+        final int newSize = callback.getNewSize();
+        final int[] oldToNew = new int[oldSize];
+        final int[] newToOld = new int[newSize];
+        Arrays.fill(oldToNew, NO_POSITION);
+        Arrays.fill(newToOld, NO_POSITION);
+
+        final int max = (oldSize + newSize + 1) / 2 + 1;
+        final int[] forward = new int[max * 2 + 3];
+        final int[] backward = new int[max * 2 + 3];
+        final int[] snake = new int[5];
+        final ArrayDeque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{0, oldSize, 0, newSize});
+        while (!ranges.isEmpty()) {
+            final int[] range = ranges.pop();
+            if (!findMiddleSnake(callback, range, forward, backward, max + 1, snake)) {
+                // Only removed or only inserted items
+                continue;
+            }
+            final int width = snake[2] - snake[0];
+            final int height = snake[3] - snake[1];
+            int x = snake[0];
+            int y = snake[1];
+            if (width != height && snake[4] == 0) {
+                // The forward snake starts with the insertion or removal
+                if (height > width) {
+                    y++;
+                } else {
+                    x++;
+                }
+            }
+            for (int i = Math.min(width, height); i > 0; i--, x++, y++) {
+                oldToNew[x] = y;
+                newToOld[y] = x;
+            }
+            if (snake[0] - range[0] + snake[1] - range[2] > 0) {
+                ranges.push(new int[]{range[0], snake[0], range[2], snake[1]});
+            }
+            if (range[1] - snake[2] + range[3] - snake[3] > 0) {
+                ranges.push(new int[]{snake[2], range[1], snake[3], range[3]});
+            }
+        }
+
+        final boolean[] changed = new boolean[newSize];
+        for (int y = 0; y < newSize; y++) {
+            changed[y] = newToOld[y] == NO_POSITION || !callback.areContentsTheSame(newToOld[y], y);
+        }
+        return new ListDiff(oldToNew, newToOld, changed);
+    }
+
+    /**
+     * Find the middle snake of the range, the snake in the middle of a shortest edit path.<br>
+     * <p>The snake starts with the insertion or removal before it, so the ranges before and after it
+     * are always smaller than the range.
+     *
+     * @param range    old start, old end, new start, new end
+     * @param forward  the furthest x on the diagonals of the forward paths
+     * @param backward the furthest x on the diagonals of the backward paths, from the ends
+     * @param offset   the index of the diagonal 0 in forward and backward
+     * @param snake    out, the start x, start y, end x and end y of the snake, and 1 if found backward
+     * @return false if the range has no old or no new item
+     */
+    private static boolean findMiddleSnake(Callback callback, int[] range, int[] forward, int[] backward,
+                                           int offset, int[] snake) {
+        final int oldStart = range[0];
+        final int oldEnd = range[1];
+        final int newStart = range[2];
+        final int newEnd = range[3];
+        final int delta = (oldEnd - oldStart) - (newEnd - newStart);
+        if (oldEnd == oldStart || newEnd == newStart) {
+            return false;
+        }
+        final boolean odd = (delta & 1) != 0;
+        final int max = (oldEnd - oldStart + newEnd - newStart + 1) / 2;
+        forward[offset + 1] = oldStart;
+        backward[offset + 1] = oldEnd;
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                final int startX;
+                int x;
+                if (k == -d || (k != d && forward[offset + k + 1] > forward[offset + k - 1])) {
+                    // Down, an inserted item
+                    x = startX = forward[offset + k + 1];
+                } else {
+                    // Right, a removed item
+                    startX = forward[offset + k - 1];
+                    x = startX + 1;
+                }
+                int y = newStart + (x - oldStart) - k;
+                final int startY = (d == 0 || x != startX) ? y : y - 1;
+                while (x < oldEnd && y < newEnd && callback.areItemsTheSame(x, y)) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                // The backward paths of the last step are on the diagonals delta - k
+                final int backwardK = delta - k;
+                if (odd && backwardK >= -d + 1 && backwardK <= d - 1 && backward[offset + backwardK] <= x) {
+                    setSnake(snake, startX, startY, x, y, 0);
+                    return true;
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                final int startX;
+                int x;
+                if (k == -d || (k != d && backward[offset + k + 1] < backward[offset + k - 1])) {
+                    // Up, an inserted item
+                    x = startX = backward[offset + k + 1];
+                } else {
+                    // Left, a removed item
+                    startX = backward[offset + k - 1];
+                    x = startX - 1;
+                }
+                int y = newEnd - ((oldEnd - x) - k);
+                final int startY = (d == 0 || x != startX) ? y : y + 1;
+                while (x > oldStart && y > newStart && callback.areItemsTheSame(x - 1, y - 1)) {
+                    x--;
+                    y--;
+                }
+                backward[offset + k] = x;
+                final int forwardK = delta - k;
+                if (!odd && forwardK >= -d && forwardK <= d && forward[offset + forwardK] >= x) {
+                    setSnake(snake, x, y, startX, startY, 1);
+                    return true;
+                }
+            }
+        }
+        // Never here, the paths meet in max steps at most
+        throw new IllegalStateException("The middle snake was not found");
+    }
+
+    private static void setSnake(int[] snake, int startX, int startY, int endX, int endY, int backward) {
+        snake[0] = startX;
+        snake[1] = startY;
+        snake[2] = endX;
+        snake[3] = endY;
+        snake[4] = backward;
+    }
+
+    /**
+     * Gets the position of an old item in the new list
+     *
+     * @param oldPosition
+     * @return -1 if it was removed
+     */
+    public int getNewPosition(int oldPosition) {
+        return mOldToNew[oldPosition];
+    }
+
+    /**
+     * Gets the position of a new item in the old list
+     *
+     * @param newPosition
+     * @return -1 if it was inserted
+     */
+    public int getOldPosition(int newPosition) {
+        return mNewToOld[newPosition];
+    }
+
+    /**
+     * Whether a new item was inserted, or its content changed
+     *
+     * @param newPosition
+     * @return
+     */
+    public boolean isChanged(int newPosition) {
+        return mChanged[newPosition];
+    }
+
+    /**
+     * Compares the items of the old list and the new list
+     */
+    public interface Callback {
+
+        public int getOldSize();
+
+        public int getNewSize();
+
+        /**
+         * Whether they are the same item, like having the same id
+         *
+         * @param oldPosition
+         * @param newPosition
+         * @return
+         */
+        public boolean areItemsTheSame(int oldPosition, int newPosition);
+
+        /**
+         * Whether the same item shows the same, called only if {@link #areItemsTheSame(int, int)}
+         *
+         * @param oldPosition
+         * @param newPosition
+         * @return
+         */
+        public boolean areContentsTheSame(int oldPosition, int newPosition);
+    }
+}
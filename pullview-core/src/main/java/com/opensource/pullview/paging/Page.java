@@ -0,0 +1,91 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Usage A page loaded by a {@link PagedSource}.<br>
+ *
+ * @param <Key>  the key of a page
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class Page<Key, Item> {
+
+    private final List<Item> mItems;
+    private final Key mPreviousKey;
+    private final Key mNextKey;
+
+    /**
+     * Constructor, of a page with no page before it
+     *
+     * @param items   the items of this page
+     * @param nextKey the key of the next page, null if this is the last one
+     */
+    public Page(List<Item> items, Key nextKey) {
+        this(items, null, nextKey);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param items       the items of this page
+     * @param previousKey the key of the page before this one, null if this is the first one
+     * @param nextKey     the key of the next page, null if this is the last one
+     */
+    public Page(List<Item> items, Key previousKey, Key nextKey) {
+        if (null == items) {
+            throw new IllegalArgumentException("items can not be null");
+        }
+        this.mItems = Collections.unmodifiableList(items);
+        this.mPreviousKey = previousKey;
+        this.mNextKey = nextKey;
+    }
+
+    public List<Item> getItems() {
+        return mItems;
+    }
+
+    public Key getPreviousKey() {
+        return mPreviousKey;
+    }
+
+    public Key getNextKey() {
+        return mNextKey;
+    }
+
+    /**
+     * Whether there is a page after this one
+     *
+     * @return
+     */
+    public boolean hasNext() {
+        return null != mNextKey;
+    }
+
+    /**
+     * Whether there is a page before this one
+     *
+     * @return
+     */
+    public boolean hasPrevious() {
+        return null != mPreviousKey;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Usage Keeps the recently loaded pages in memory, the least recently used are evicted first.<br>
+ * <p>Set it to a {@link PagedLoader} with {@link PagedLoader#setCache(PageCache)}, a refresh shows the cached pages
+ * at once while loading the first page again, keep it longer than the list to show them on the next visit.<br>
+ * <p>The size is the count of the items by default, override {@link #sizeOf(Object, Page)} to count bytes
+ * or anything else. Thread safe.
+ *
+ * @param <Key>  the key of a page
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PageCache<Key, Item> {
+
+    private final LinkedHashMap<Key, Page<Key, Item>> mPages;
+    private final int mMaxSize;
+    private int mSize = 0;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize the max size of the pages, in the unit of {@link #sizeOf(Object, Page)}
+     */
+    public PageCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0, but is " + maxSize);
+        }
+        this.mMaxSize = maxSize;
+        // Access order, the eldest is the least recently used
+        this.mPages = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the size of a page, it must not change while it is cached.
+     *
+     * @param key  the key of the page, null for the first one
+     * @param page
+     * @return the count of the items by default
+     */
+    protected int sizeOf(Key key, Page<Key, Item> page) {
+        return page.getItems().size();
+    }
+
+    /**
+     * Gets a page
+     *
+     * @param key null for the first page
+     * @return null if not cached
+     */
+    public synchronized Page<Key, Item> get(Key key) {
+        return mPages.get(key);
+    }
+
+    /**
+     * Gets the cached pages from the first one, as long as they follow each other, one by one.
+     * The key of a page is the next key of the one before, null for the first one.
+     *
+     * @return empty if the first page is not cached
+     */
+    public synchronized List<Page<Key, Item>> getFirstPageList() {
+        final List<Page<Key, Item>> pages = new ArrayList<>();
+        Page<Key, Item> page = mPages.get(null);
+        if (null == page) {
+            return pages;
+        }
+        pages.add(page);
+        // The keys are visited once, a page linking back to an earlier one can't loop
+        final List<Key> keys = new ArrayList<>();
+        while (page.hasNext() && !keys.contains(page.getNextKey())) {
+            final Page<Key, Item> next = mPages.get(page.getNextKey());
+            if (null == next) {
+                break;
+            }
+            keys.add(page.getNextKey());
+            pages.add(next);
+            page = next;
+        }
+        return pages;
+    }
+
+    /**
+     * Put a page, the least recently used ones are evicted if the cache is too big.
+     *
+     * @param key  null for the first page
+     * @param page
+     */
+    public synchronized void put(Key key, Page<Key, Item> page) {
+        if (null == page) {
+            throw new IllegalArgumentException("page can not be null");
+        }
+        final Page<Key, Item> old = mPages.put(key, page);
+        if (null != old) {
+            mSize -= sizeOf(key, old);
+        }
+        mSize += sizeOf(key, page);
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Remove a page
+     *
+     * @param key
+     * @return the removed page, null if not cached
+     */
+    public synchronized Page<Key, Item> remove(Key key) {
+        final Page<Key, Item> page = mPages.remove(key);
+        if (null != page) {
+            mSize -= sizeOf(key, page);
+        }
+        return page;
+    }
+
+    /**
+     * Remove all the pages
+     */
+    public synchronized void clear() {
+        mPages.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Gets the size of the cached pages
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public int maxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Evict the least recently used pages until the size is not greater than the max size.
+     *
+     * @param maxSize
+     */
+    public synchronized void trimToSize(int maxSize) {
+        while (mSize > maxSize && !mPages.isEmpty()) {
+            final Map.Entry<Key, Page<Key, Item>> eldest = mPages.entrySet().iterator().next();
+            mPages.remove(eldest.getKey());
+            mSize -= sizeOf(eldest.getKey(), eldest.getValue());
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Usage Saves the first pages to a file, so they can be shown at once when the app starts again.<br>
+ * <p>Set it to a {@link PagedLoader} with {@link PagedLoader#setSnapshot(PageSnapshot)}, the loader writes it
+ * after the refreshes and the load mores of the first pages, and {@link PagedLoader#restoreSnapshot()}
+ * shows it before the first refresh completes.<br>
+ * <p>The file is binary, the keys and the items are written by the {@link Codec}s, it's read through a memory
+ * mapped file. A new snapshot is written to a temporary file first, so a crash never leaves half of one,
+ * and a broken file, or one a codec fails to read, reads as no snapshot and is deleted.
+ *
+ * @param <Key>  the key of a page
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PageSnapshot<Key, Item> {
+
+    private static final int MAGIC = 0x5056534e; // "PVSN"
+    private static final int VERSION = 2;
+
+    public static final Codec<String> STRING_CODEC = new Codec<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    public static final Codec<Integer> INTEGER_CODEC = new Codec<Integer>() {
+        @Override
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    public static final Codec<Long> LONG_CODEC = new Codec<Long>() {
+        @Override
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    private final File mFile;
+    private final int mMaxPages;
+    private final Codec<Key> mKeyCodec;
+    private final Codec<Item> mItemCodec;
+
+    /**
+     * Constructor
+     *
+     * @param file      the snapshot file
+     * @param maxPages  the count of the first pages to save
+     * @param keyCodec  writes the previous and the next keys of the pages
+     * @param itemCodec writes the items, not null
+     */
+    public PageSnapshot(File file, int maxPages, Codec<Key> keyCodec, Codec<Item> itemCodec) {
+        if (null == file || null == keyCodec || null == itemCodec) {
+            throw new IllegalArgumentException("file, keyCodec and itemCodec can not be null");
+        }
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException("maxPages must be greater than 0, but is " + maxPages);
+        }
+        this.mFile = file;
+        this.mMaxPages = maxPages;
+        this.mKeyCodec = keyCodec;
+        this.mItemCodec = itemCodec;
+    }
+
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * Write the pages, the first {@link #getMaxPages()} ones are written.
+     *
+     * @param pages from the first page, each one follows the one before
+     * @throws IOException
+     */
+    public synchronized void write(List<Page<Key, Item>> pages) throws IOException {
+        final File temp = new File(mFile.getPath() + ".tmp");
+        final FileOutputStream file = new FileOutputStream(temp);
+        try {
+            write(new DataOutputStream(new BufferedOutputStream(file)), pages);
+            // On the disk before it replaces the old one
+            file.getFD().sync();
+        } finally {
+            file.close();
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("Failed to rename " + temp + " to " + mFile);
+        }
+    }
+
+    private void write(DataOutputStream out, List<Page<Key, Item>> pages) throws IOException {
+        final int count = Math.min(mMaxPages, pages.size());
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            final Page<Key, Item> page = pages.get(i);
+            final List<Item> items = page.getItems();
+            out.writeInt(items.size());
+            for (Item item : items) {
+                mItemCodec.write(out, item);
+            }
+            out.writeBoolean(page.hasPrevious());
+            if (page.hasPrevious()) {
+                mKeyCodec.write(out, page.getPreviousKey());
+            }
+            out.writeBoolean(page.hasNext());
+            if (page.hasNext()) {
+                mKeyCodec.write(out, page.getNextKey());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Read the pages
+     *
+     * @return the pages from the first one, empty if there is no snapshot or it is broken
+     */
+    public synchronized List<Page<Key, Item>> read() {
+        if (!mFile.isFile()) {
+            return Collections.emptyList();
+        }
+        try {
+            final RandomAccessFile file = new RandomAccessFile(mFile, "r");
+            try {
+                final MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                return read(new DataInputStream(new ByteBufferInputStream(buffer)));
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            // Written by another version, or broken, load the pages again
+        } catch (RuntimeException e) {
+            // A codec failed to read what it wrote, the same file would fail again
+        }
+        mFile.delete();
+        return Collections.emptyList();
+    }
+
+    /**
+     * Delete the snapshot
+     */
+    public synchronized void delete() {
+        mFile.delete();
+    }
+
+    private List<Page<Key, Item>> read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a snapshot of this version");
+        }
+        final int count = in.readInt();
+        if (count < 0 || count > mMaxPages) {
+            throw new IOException("Broken page count " + count);
+        }
+        final List<Page<Key, Item>> pages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Broken item count " + size);
+            }
+            final List<Item> items = new ArrayList<>(Math.min(size, 1024));
+            for (int j = 0; j < size; j++) {
+                items.add(mItemCodec.read(in));
+            }
+            final Key previousKey = in.readBoolean() ? mKeyCodec.read(in) : null;
+            final Key nextKey = in.readBoolean() ? mKeyCodec.read(in) : null;
+            pages.add(new Page<>(items, previousKey, nextKey));
+        }
+        return pages;
+    }
+
+    /**
+     * Writes and reads a key or an item.
+     *
+     * @param <T>
+     */
+    public interface Codec<T> {
+
+        public void write(DataOutput out, T value) throws IOException;
+
+        public T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Reads the mapped file without copying it to a byte array first
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(buffer, offset, count);
+            return count;
+        }
+    }
+}
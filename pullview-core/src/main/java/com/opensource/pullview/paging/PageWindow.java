@@ -0,0 +1,223 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Usage Keeps only some of the pages of a long list in memory, the others are dropped and loaded again.<br>
+ * <p>The list keeps the key and the item count of every page, a dropped page keeps its positions with
+ * null items(placeholders), so the positions of the other items and the scroll position don't change.
+ * A page loaded again keeps its item count: extra items are dropped, missing ones stay null.<br>
+ * <p>{@link #trim(int)} drops the pages farthest from the page in view until only the max pages are kept.
+ * Not thread safe.
+ *
+ * @param <Key>  the key of a page
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PageWindow<Key, Item> {
+
+    private final int mMaxPages;
+
+    private final List<Key> mKeys = new ArrayList<>();
+    /**
+     * The position of the first item of each page
+     */
+    private final List<Integer> mStarts = new ArrayList<>();
+    /**
+     * The items of each page, null if dropped
+     */
+    private final List<List<Item>> mPages = new ArrayList<>();
+    private int mCount = 0;
+    private int mLoadedPageCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param maxPages the max count of the pages kept in memory
+     */
+    public PageWindow(int maxPages) {
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException("maxPages must be greater than 0, but is " + maxPages);
+        }
+        this.mMaxPages = maxPages;
+    }
+
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * Remove all the pages
+     */
+    public void clear() {
+        mKeys.clear();
+        mStarts.clear();
+        mPages.clear();
+        mCount = 0;
+        mLoadedPageCount = 0;
+    }
+
+    /**
+     * Append a page after the last one
+     *
+     * @param key  the key the page was loaded with
+     * @param page
+     * @return the index of the page
+     */
+    public int append(Key key, Page<Key, Item> page) {
+        mKeys.add(key);
+        mStarts.add(mCount);
+        mPages.add(new ArrayList<>(page.getItems()));
+        mCount += page.getItems().size();
+        mLoadedPageCount++;
+        return mPages.size() - 1;
+    }
+
+    /**
+     * Insert a page before the first one, the indexes of the other pages increase by one.
+     *
+     * @param key  the key the page was loaded with
+     * @param page
+     */
+    public void prepend(Key key, Page<Key, Item> page) {
+        final int size = page.getItems().size();
+        for (int i = 0; i < mStarts.size(); i++) {
+            mStarts.set(i, mStarts.get(i) + size);
+        }
+        mKeys.add(0, key);
+        mStarts.add(0, 0);
+        mPages.add(0, new ArrayList<>(page.getItems()));
+        mCount += size;
+        mLoadedPageCount++;
+    }
+
+    /**
+     * Set the items of a dropped page loaded again
+     *
+     * @param pageIndex
+     * @param page
+     */
+    public void set(int pageIndex, Page<Key, Item> page) {
+        final int size = getPageSize(pageIndex);
+        final List<Item> items = new ArrayList<>(size);
+        final List<Item> loaded = page.getItems();
+        for (int i = 0; i < size; i++) {
+            items.add(i < loaded.size() ? loaded.get(i) : null);
+        }
+        if (null == mPages.set(pageIndex, items)) {
+            mLoadedPageCount++;
+        }
+    }
+
+    /**
+     * Drop the pages farthest from a page, until no more than the max pages are kept.
+     *
+     * @param centerPage the page in view, never dropped
+     */
+    public void trim(int centerPage) {
+        while (mLoadedPageCount > mMaxPages) {
+            int farthest = -1;
+            for (int i = 0; i < mPages.size(); i++) {
+                if (null != mPages.get(i) && i != centerPage
+                        && (farthest < 0 || Math.abs(i - centerPage) > Math.abs(farthest - centerPage))) {
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) {
+                return;
+            }
+            mPages.set(farthest, null);
+            mLoadedPageCount--;
+        }
+    }
+
+    /**
+     * Gets the count of the items, with the ones of the dropped pages
+     *
+     * @return
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getPageCount() {
+        return mPages.size();
+    }
+
+    public int getLoadedPageCount() {
+        return mLoadedPageCount;
+    }
+
+    /**
+     * Gets the page of an item
+     *
+     * @param position
+     * @return
+     */
+    public int getPageIndex(int position) {
+        if (position < 0 || position >= mCount) {
+            throw new IndexOutOfBoundsException("position " + position + " of " + mCount);
+        }
+        // The last page starting at or before the position, skips the empty pages
+        int low = 0;
+        int high = mStarts.size() - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (mStarts.get(middle) <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the key a page was loaded with
+     *
+     * @param pageIndex
+     * @return
+     */
+    public Key getKey(int pageIndex) {
+        return mKeys.get(pageIndex);
+    }
+
+    public int getPageSize(int pageIndex) {
+        final int end = pageIndex + 1 < mStarts.size() ? mStarts.get(pageIndex + 1) : mCount;
+        return end - mStarts.get(pageIndex);
+    }
+
+    public boolean isLoaded(int pageIndex) {
+        return null != mPages.get(pageIndex);
+    }
+
+    /**
+     * Gets an item
+     *
+     * @param position
+     * @return null if its page was dropped
+     */
+    public Item getItem(int position) {
+        final int pageIndex = getPageIndex(position);
+        final List<Item> items = mPages.get(pageIndex);
+        return null == items ? null : items.get(position - mStarts.get(pageIndex));
+    }
+}
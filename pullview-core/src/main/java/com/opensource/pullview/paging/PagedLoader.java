@@ -0,0 +1,551 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import com.opensource.pullview.CancellationSignal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Usage Loads the pages of a {@link PagedSource} one after another.<br>
+ * <p>The loads run on the executor, the results are delivered through the delivery executor(the main thread
+ * on Android), so {@link Callback} only merges the page into the adapter.<br>
+ * <p>The methods are called on the delivery thread, only one refresh or load more runs at a time,
+ * a load previous can run beside a load more.<br>
+ * <p>A refresh loads the page of the initial key, null by default. For a list opened in the middle
+ * ({@link #setInitialKey(Object)}), {@link #loadPrevious()} loads the pages before it one after another.<br>
+ * <p>Every refresh starts a new generation, the loads of the older generations are out of date:
+ * they are skipped if not started yet, canceled if running, and their results are dropped.<br>
+ * <p>With a {@link PageCache}, a refresh delivers the cached pages at once, one by one, then loads the first
+ * page again (stale-while-revalidate). The first page loaded replaces the cached one, the cached pages after it
+ * are delivered again right after it as {@link #LOAD_CACHED_MORE} if they still follow it, so the list keeps
+ * its length. If the first page links to another page now, the cached pages are dropped.
+ * Only the pages from the null key are delivered from the cache.<br>
+ * <p>With a {@link PageSnapshot}, the first pages are saved to a file on the executor,
+ * {@link #restoreSnapshot()} delivers them when the app starts again.
+ *
+ * @param <Key>  the key of a page
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PagedLoader<Key, Item> {
+
+    /**
+     * Load the first page, the items replace the old ones
+     */
+    public static final int LOAD_REFRESH = 0;
+    /**
+     * Load the next page, the items are appended
+     */
+    public static final int LOAD_MORE = 1;
+    /**
+     * The first of the cached pages delivered at once by a refresh, the items replace the old ones.
+     * The refresh goes on, its first page comes later.
+     */
+    public static final int LOAD_CACHED = 2;
+    /**
+     * Load the page before the first one, the items are inserted before the old ones
+     */
+    public static final int LOAD_PREVIOUS = 3;
+    /**
+     * The cached pages after the first one, delivered one by one right after {@link #LOAD_CACHED},
+     * the items are appended
+     */
+    public static final int LOAD_CACHED_MORE = 4;
+
+    private final PagedSource<Key, Item> mSource;
+    private final Executor mExecutor;
+    private final Executor mDeliveryExecutor;
+    private final Callback<Key, Item> mCallback;
+    private PageCache<Key, Item> mCache = null;
+    private PageSnapshot<Key, Item> mSnapshot = null;
+    /**
+     * The pages since the last refresh which go to the snapshot
+     */
+    private final List<Page<Key, Item>> mSnapshotPages = new ArrayList<>();
+    /**
+     * Increased by every snapshot write, a write overtaken by a newer one is skipped
+     */
+    private final AtomicInteger mSnapshotVersion = new AtomicInteger(0);
+
+    private Key mInitialKey = null;
+    private Key mNextKey = null;
+    private Key mPreviousKey = null;
+    private boolean mHasMore = true;
+    private boolean mHasPrevious = false;
+    private boolean mLoading = false;
+    private boolean mLoadingPrevious = false;
+    /**
+     * Increased by every refresh, written on the delivery thread, read by the loads
+     */
+    private volatile int mGeneration = 0;
+    /**
+     * The signal of the refresh or load more going on
+     */
+    private CancellationSignal mSignal = null;
+    /**
+     * The signal of the load previous going on
+     */
+    private CancellationSignal mPreviousSignal = null;
+
+    /**
+     * Constructor
+     *
+     * @param source
+     * @param executor         runs the loads
+     * @param deliveryExecutor delivers the results to the callback
+     * @param callback
+     */
+    public PagedLoader(PagedSource<Key, Item> source, Executor executor, Executor deliveryExecutor,
+                       Callback<Key, Item> callback) {
+        if (null == source || null == executor || null == deliveryExecutor || null == callback) {
+            throw new IllegalArgumentException("source, executor, deliveryExecutor and callback can not be null");
+        }
+        this.mSource = source;
+        this.mExecutor = executor;
+        this.mDeliveryExecutor = deliveryExecutor;
+        this.mCallback = callback;
+    }
+
+    /**
+     * Gets the executor shared by the loaders which are not given one
+     *
+     * @return
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Load the first page, the loads going on are canceled.
+     */
+    public void refresh() {
+        cancel();
+        cancelPrevious();
+        mGeneration++;
+        // Not known until the first page is loaded
+        mHasPrevious = false;
+        if (null != mCache && null == mInitialKey) {
+            final List<Page<Key, Item>> cached = mCache.getFirstPageList();
+            if (!cached.isEmpty()) {
+                deliverCached(mGeneration, cached);
+            }
+        }
+        load(LOAD_REFRESH, mInitialKey);
+    }
+
+    /**
+     * Sets the key of the page a refresh loads, for a list opened in the middle.
+     *
+     * @param key null to load the first page(default)
+     */
+    public void setInitialKey(Key key) {
+        this.mInitialKey = key;
+    }
+
+    public Key getInitialKey() {
+        return mInitialKey;
+    }
+
+    /**
+     * Sets the cache of the pages, see {@link PageCache}
+     *
+     * @param cache null to not cache
+     */
+    public void setCache(PageCache<Key, Item> cache) {
+        this.mCache = cache;
+    }
+
+    public PageCache<Key, Item> getCache() {
+        return mCache;
+    }
+
+    /**
+     * Sets the snapshot of the first pages, see {@link PageSnapshot}
+     *
+     * @param snapshot null to not save the pages
+     */
+    public void setSnapshot(PageSnapshot<Key, Item> snapshot) {
+        this.mSnapshot = snapshot;
+        mSnapshotPages.clear();
+    }
+
+    /**
+     * Read the snapshot, and deliver the pages at once on this thread as {@link #LOAD_CACHED}
+     * and {@link #LOAD_CACHED_MORE}.<br>
+     * <p>Call it before the list is laid out for the first time, then {@link #refresh()} to load the pages again.
+     * The file is small and mapped, reading it on the main thread is fast.
+     *
+     * @return true if the pages were delivered, false if there is no snapshot
+     */
+    public boolean restoreSnapshot() {
+        if (null == mSnapshot) {
+            return false;
+        }
+        final List<Page<Key, Item>> pages = mSnapshot.read();
+        if (pages.isEmpty()) {
+            return false;
+        }
+        onCachedPagesLoaded(pages);
+        return true;
+    }
+
+    /**
+     * Load the next page
+     *
+     * @return false if a load is going on or there is no more page
+     */
+    public boolean loadMore() {
+        if (mLoading || !mHasMore) {
+            return false;
+        }
+        load(LOAD_MORE, mNextKey);
+        return true;
+    }
+
+    /**
+     * Load the page before the first one
+     *
+     * @return false if a load previous or a refresh is going on, or there is no page before
+     */
+    public boolean loadPrevious() {
+        if (mLoadingPrevious || !mHasPrevious) {
+            return false;
+        }
+        load(LOAD_PREVIOUS, mPreviousKey);
+        return true;
+    }
+
+    /**
+     * Cancel the refresh or load more going on, its result is dropped. A load previous goes on.
+     */
+    public void cancel() {
+        mLoading = false;
+        if (null != mSignal) {
+            mSignal.cancel();
+            mSignal = null;
+        }
+    }
+
+    /**
+     * Cancel the load previous going on, its result is dropped. A refresh or load more goes on.
+     */
+    public void cancelPrevious() {
+        mLoadingPrevious = false;
+        if (null != mPreviousSignal) {
+            mPreviousSignal.cancel();
+            mPreviousSignal = null;
+        }
+    }
+
+    public PagedSource<Key, Item> getSource() {
+        return mSource;
+    }
+
+    /**
+     * Gets the key of the next page, in {@link Callback#onPageLoaded(int, Page)} it's the next key of the page
+     *
+     * @return null before the first page, or after the last one
+     */
+    public Key getNextKey() {
+        return mNextKey;
+    }
+
+    /**
+     * Gets the key of the page before the first one, in {@link Callback#onPageLoaded(int, Page)}
+     * it's the previous key of the page
+     *
+     * @return null before the first page, or if the first page is loaded
+     */
+    public Key getPreviousKey() {
+        return mPreviousKey;
+    }
+
+    public boolean isLoading() {
+        return mLoading;
+    }
+
+    public boolean isLoadingPrevious() {
+        return mLoadingPrevious;
+    }
+
+    /**
+     * Gets the current generation, increased by every {@link #refresh()}
+     *
+     * @return
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Whether there is a page after the loaded ones
+     *
+     * @return
+     */
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    /**
+     * Whether there is a page before the loaded ones
+     *
+     * @return
+     */
+    public boolean hasPrevious() {
+        return mHasPrevious;
+    }
+
+    private void load(final int type, final Key key) {
+        final int generation = mGeneration;
+        final CancellationSignal signal = new CancellationSignal();
+        if (type == LOAD_PREVIOUS) {
+            mLoadingPrevious = true;
+            mPreviousSignal = signal;
+        } else {
+            mLoading = true;
+            mSignal = signal;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (signal.isCanceled()) {
+                    // Canceled while waiting for the executor, don't load what would be dropped
+                    return;
+                }
+                Page<Key, Item> page = null;
+                Throwable error = null;
+                try {
+                    page = mSource.load(key, signal);
+                    if (null == page) {
+                        error = new IllegalStateException("PagedSource.load() returned null");
+                    }
+                } catch (Exception e) {
+                    error = e;
+                }
+                if (signal.isCanceled()) {
+                    return;
+                }
+                deliver(generation, signal, type, key, page, error);
+            }
+        });
+    }
+
+    private void deliver(final int generation, final CancellationSignal signal, final int type, final Key key,
+                         final Page<Key, Item> page, final Throwable error) {
+        mDeliveryExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    // Loaded before a refresh, the list doesn't have the pages this one follows any more
+                    return;
+                }
+                if (signal.isCanceled()) {
+                    // Canceled after it was loaded, the load started after it is going on
+                    return;
+                }
+                if (type == LOAD_PREVIOUS) {
+                    mLoadingPrevious = false;
+                    mPreviousSignal = null;
+                } else {
+                    mLoading = false;
+                    mSignal = null;
+                }
+                if (null != error) {
+                    mCallback.onLoadFailed(type, error);
+                    return;
+                }
+                if (type != LOAD_PREVIOUS) {
+                    mNextKey = page.getNextKey();
+                    mHasMore = page.hasNext();
+                }
+                if (type != LOAD_MORE) {
+                    mPreviousKey = page.getPreviousKey();
+                    mHasPrevious = page.hasPrevious();
+                }
+                List<Page<Key, Item>> following = null;
+                if (null != mCache) {
+                    if (type == LOAD_REFRESH) {
+                        following = getFollowingCachedPages(key, page);
+                        if (following.isEmpty()) {
+                            // The pages cached before may not follow the new first page
+                            mCache.clear();
+                        }
+                    }
+                    mCache.put(key, page);
+                }
+                saveSnapshot(type, page);
+                mCallback.onPageLoaded(type, page);
+                if (null != following) {
+                    deliverFollowing(generation, following);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the cached pages after the first one, if the first page loaded again still links to them
+     *
+     * @param key  the key of the refresh
+     * @param page the first page loaded again
+     * @return empty if none
+     */
+    private List<Page<Key, Item>> getFollowingCachedPages(Key key, Page<Key, Item> page) {
+        final List<Page<Key, Item>> following = new ArrayList<>();
+        if (null != key || !page.hasNext()) {
+            return following;
+        }
+        final List<Page<Key, Item>> cached = mCache.getFirstPageList();
+        if (cached.size() > 1 && page.getNextKey().equals(cached.get(0).getNextKey())) {
+            following.addAll(cached.subList(1, cached.size()));
+        }
+        return following;
+    }
+
+    /**
+     * Deliver the cached pages after the first page loaded again, the list shows them already
+     *
+     * @param generation
+     * @param pages
+     */
+    private void deliverFollowing(int generation, List<Page<Key, Item>> pages) {
+        for (Page<Key, Item> page : pages) {
+            if (generation != mGeneration || mLoading) {
+                // Refreshed or loading more in the callback, the pages are not wanted any more
+                return;
+            }
+            mNextKey = page.getNextKey();
+            mHasMore = page.hasNext();
+            saveSnapshot(LOAD_CACHED_MORE, page);
+            mCallback.onPageLoaded(LOAD_CACHED_MORE, page);
+        }
+    }
+
+    private void deliverCached(final int generation, final List<Page<Key, Item>> pages) {
+        mDeliveryExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                // The refresh is still loading
+                onCachedPagesLoaded(pages);
+            }
+        });
+    }
+
+    private void onCachedPagesLoaded(List<Page<Key, Item>> pages) {
+        // A list opened in the middle can load the pages before the restored ones
+        mPreviousKey = pages.get(0).getPreviousKey();
+        mHasPrevious = pages.get(0).hasPrevious();
+        for (int i = 0; i < pages.size(); i++) {
+            final Page<Key, Item> page = pages.get(i);
+            // A load more after a failed refresh follows the pages shown
+            mNextKey = page.getNextKey();
+            mHasMore = page.hasNext();
+            mCallback.onPageLoaded(i == 0 ? LOAD_CACHED : LOAD_CACHED_MORE, page);
+        }
+    }
+
+    private void saveSnapshot(int type, Page<Key, Item> page) {
+        final PageSnapshot<Key, Item> snapshot = mSnapshot;
+        if (null == snapshot) {
+            return;
+        }
+        if (type == LOAD_REFRESH) {
+            mSnapshotPages.clear();
+        } else if (type == LOAD_PREVIOUS) {
+            // The snapshot starts with the page of the refresh
+            return;
+        } else if (mSnapshotPages.isEmpty() || mSnapshotPages.size() >= snapshot.getMaxPages()) {
+            // Not following a refresh, or not one of the first pages
+            return;
+        }
+        mSnapshotPages.add(page);
+        final List<Page<Key, Item>> pages = new ArrayList<>(mSnapshotPages);
+        final int version = mSnapshotVersion.incrementAndGet();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (snapshot) {
+                    if (version != mSnapshotVersion.get()) {
+                        return;
+                    }
+                    try {
+                        snapshot.write(pages);
+                    } catch (IOException e) {
+                        // The pages are not shown at once next time, nothing else
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Receives the results on the delivery thread.
+     *
+     * @param <Key>
+     * @param <Item>
+     */
+    public interface Callback<Key, Item> {
+
+        /**
+         * A page was loaded
+         *
+         * @param type {@link #LOAD_REFRESH}, {@link #LOAD_MORE}, {@link #LOAD_PREVIOUS}, {@link #LOAD_CACHED}
+         *             or {@link #LOAD_CACHED_MORE}
+         * @param page
+         */
+        public void onPageLoaded(int type, Page<Key, Item> page);
+
+        /**
+         * A load failed
+         *
+         * @param type  {@link #LOAD_REFRESH}, {@link #LOAD_MORE} or {@link #LOAD_PREVIOUS}
+         * @param error
+         */
+        public void onLoadFailed(int type, Throwable error);
+    }
+
+    /**
+     * Creates the default executor when it's used for the first time
+     */
+    private static class DefaultExecutorHolder {
+
+        private static final int THREAD_COUNT = 2;
+
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "PullView-paging #" + mCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
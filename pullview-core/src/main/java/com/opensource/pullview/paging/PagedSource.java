@@ -0,0 +1,42 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import com.opensource.pullview.CancellationSignal;
+
+/**
+ * Usage The source of the pages shown by a PullView list.<br>
+ * <p>The widget refreshes with the key null, and loads more with the next key of the last page.
+ * {@link #load(Object, CancellationSignal)} is called on a background thread, the page is delivered on the main thread.
+ *
+ * @param <Key>  the key of a page, like a page number or a cursor
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public interface PagedSource<Key, Item> {
+
+    /**
+     * Load a page, called on a background thread.
+     *
+     * @param key    null for the first page
+     * @param signal canceled when the page is not wanted any more, stop the load as soon as possible then
+     * @return the page, not null
+     * @throws Exception the load failed
+     */
+    public Page<Key, Item> load(Key key, CancellationSignal signal) throws Exception;
+}
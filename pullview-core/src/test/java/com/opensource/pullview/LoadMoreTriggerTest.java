@@ -0,0 +1,202 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage When {@link LoadMoreTrigger} lets the footer be pulled and loads more by itself.<br>
+ * <p>The list has 1 header row, 100 items and 1 footer row, 10 rows are shown, a row is 100 pixels high.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class LoadMoreTriggerTest implements IPullView {
+
+    private static final int HEADERS = 1;
+    private static final int FOOTERS = 1;
+    private static final int TOTAL = HEADERS + 100 + FOOTERS;
+    private static final int VISIBLE = 10;
+    private static final int ROW_HEIGHT = 100;
+
+    private LoadMoreTrigger mTrigger;
+    private PullScrollMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        mTrigger = new LoadMoreTrigger();
+        mMetrics = new PullScrollMetrics();
+        scrollTo(0);
+    }
+
+    /**
+     * Scroll the first visible row to the position
+     */
+    private void scrollTo(int first) {
+        mMetrics.setItems(first, VISIBLE, TOTAL);
+        mMetrics.setScroll(first * ROW_HEIGHT, VISIBLE * ROW_HEIGHT, TOTAL * ROW_HEIGHT);
+    }
+
+    private boolean shouldPrefetch() {
+        return mTrigger.shouldPrefetch(mMetrics, HEADERS, FOOTERS, LoadMode.AUTO_LOAD, true, IDEL);
+    }
+
+    @Test
+    public void autoLoadsAtTheEndOnly() {
+        assertFalse(mTrigger.shouldAutoLoad(mMetrics, LoadMode.AUTO_LOAD, true, IDEL));
+        scrollTo(TOTAL - VISIBLE);
+        assertTrue(mTrigger.shouldAutoLoad(mMetrics, LoadMode.AUTO_LOAD, true, IDEL));
+        assertFalse(mTrigger.shouldAutoLoad(mMetrics, LoadMode.AUTO_LOAD, false, IDEL));
+        assertFalse(mTrigger.shouldAutoLoad(mMetrics, LoadMode.AUTO_LOAD, true, LOADING));
+        assertFalse(mTrigger.shouldAutoLoad(mMetrics, LoadMode.PULL_TO_LOAD, true, IDEL));
+    }
+
+    @Test
+    public void pullsTheFooterAtTheBottom() {
+        assertFalse(mTrigger.canPull(mMetrics, LoadMode.PULL_TO_LOAD, true, false));
+        scrollTo(TOTAL - VISIBLE);
+        assertTrue(mTrigger.canPull(mMetrics, LoadMode.PULL_TO_LOAD, true, false));
+        assertFalse(mTrigger.canPull(mMetrics, LoadMode.PULL_TO_LOAD, false, false));
+        // Auto load doesn't pull to load, only to over scroll when there is nothing more
+        assertFalse(mTrigger.canPull(mMetrics, LoadMode.AUTO_LOAD, true, true));
+        assertTrue(mTrigger.canPull(mMetrics, LoadMode.AUTO_LOAD, false, true));
+    }
+
+    @Test
+    public void noPrefetchByDefault() {
+        assertFalse(mTrigger.isPrefetchEnabled());
+        scrollTo(TOTAL - VISIBLE - 1);
+        assertFalse(shouldPrefetch());
+    }
+
+    @Test
+    public void prefetchesItemsBeforeTheEnd() {
+        mTrigger.setPrefetchItems(5);
+        assertTrue(mTrigger.isPrefetchEnabled());
+        // 6 items below the screen, not counting the footer row
+        scrollTo(TOTAL - FOOTERS - VISIBLE - 6);
+        assertFalse(shouldPrefetch());
+        scrollTo(TOTAL - FOOTERS - VISIBLE - 5);
+        assertTrue(shouldPrefetch());
+    }
+
+    @Test
+    public void prefetchesScreensBeforeTheEnd() {
+        mTrigger.setPrefetchScreens(2f);
+        // 21 rows, more than 2 screens below the screen
+        scrollTo(TOTAL - VISIBLE - 21);
+        assertFalse(shouldPrefetch());
+        scrollTo(TOTAL - VISIBLE - 20);
+        assertTrue(shouldPrefetch());
+    }
+
+    @Test
+    public void prefetchesOnlyWhenIdleAndEnabled() {
+        mTrigger.setPrefetchItems(5);
+        scrollTo(TOTAL - VISIBLE);
+        assertFalse(mTrigger.shouldPrefetch(mMetrics, HEADERS, FOOTERS, LoadMode.AUTO_LOAD, true, LOADING));
+        assertFalse(mTrigger.shouldPrefetch(mMetrics, HEADERS, FOOTERS, LoadMode.AUTO_LOAD, false, IDEL));
+        assertFalse(mTrigger.shouldPrefetch(mMetrics, HEADERS, FOOTERS, LoadMode.PULL_TO_LOAD, true, IDEL));
+    }
+
+    @Test
+    public void emptyListDoesNotPrefetch() {
+        mTrigger.setPrefetchItems(5);
+        mMetrics.setItems(0, HEADERS + FOOTERS, HEADERS + FOOTERS);
+        mMetrics.setScroll(0, VISIBLE * ROW_HEIGHT, (HEADERS + FOOTERS) * ROW_HEIGHT);
+        assertFalse(shouldPrefetch());
+    }
+
+    @Test
+    public void prefetchItemsAreKept() {
+        mTrigger.setPrefetchItems(7);
+        assertEquals(7, mTrigger.getPrefetchItems());
+    }
+
+    @Test
+    public void adaptivePrefetchFollowsTheLoadLatency() {
+        mTrigger.setPrefetchItems(2);
+        mTrigger.setAdaptivePrefetch(true);
+        assertTrue(mTrigger.isPrefetchEnabled());
+        // The minimum until a load completed
+        assertEquals(2, mTrigger.getPrefetchItems());
+        mTrigger.onLoadStarted(0);
+        mTrigger.onLoadCompleted(400);
+        scrollTo(0);
+        mTrigger.onScroll(mMetrics, 1000);
+        scrollTo(10);
+        mTrigger.onScroll(mMetrics, 1100);
+        // 400ms at 100 items/s, 1.5 times
+        assertEquals(60, mTrigger.getPrefetchItems());
+        scrollTo(TOTAL - FOOTERS - VISIBLE - 61);
+        assertFalse(shouldPrefetch());
+        scrollTo(TOTAL - FOOTERS - VISIBLE - 60);
+        assertTrue(shouldPrefetch());
+    }
+
+    @Test
+    public void adaptivePrefetchOffGoesBackToTheItems() {
+        mTrigger.setPrefetchItems(2);
+        mTrigger.setAdaptivePrefetch(true);
+        mTrigger.onLoadStarted(0);
+        mTrigger.onLoadCompleted(400);
+        mTrigger.onScroll(mMetrics, 1000);
+        scrollTo(10);
+        mTrigger.onScroll(mMetrics, 1100);
+        mTrigger.setAdaptivePrefetch(false);
+        assertEquals(2, mTrigger.getPrefetchItems());
+    }
+
+    @Test
+    public void loadsPreviousNearTheTop() {
+        scrollTo(5);
+        assertFalse(mTrigger.shouldLoadPrevious(mMetrics, HEADERS, true, IDEL));
+        mTrigger.setPreviousPrefetchItems(4);
+        assertTrue(mTrigger.shouldLoadPrevious(mMetrics, HEADERS, true, IDEL));
+        scrollTo(0);
+        assertTrue(mTrigger.shouldLoadPrevious(mMetrics, HEADERS, true, IDEL));
+        // Loading, failed or nothing before
+        assertFalse(mTrigger.shouldLoadPrevious(mMetrics, HEADERS, false, IDEL));
+        assertFalse(mTrigger.shouldLoadPrevious(mMetrics, HEADERS, true, LOADING));
+    }
+
+    @Test
+    public void emptyListDoesntLoadPrevious() {
+        mMetrics.setItems(0, HEADERS, HEADERS);
+        assertFalse(mTrigger.shouldLoadPrevious(mMetrics, HEADERS, true, IDEL));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prefetchItemsMustNotBeNegative() {
+        mTrigger.setPrefetchItems(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prefetchScreensMustNotBeNegative() {
+        mTrigger.setPrefetchScreens(-1f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void previousPrefetchItemsMustNotBeNegative() {
+        mTrigger.setPreviousPrefetchItems(-1);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Usage The prefetch distance {@link PrefetchEstimator} gets from the load latency and the scroll speed.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PrefetchEstimatorTest {
+
+    private static final float DELTA = 0.01f;
+
+    private PrefetchEstimator mEstimator;
+
+    @Before
+    public void setUp() {
+        mEstimator = new PrefetchEstimator();
+    }
+
+    private void load(long start, long latency) {
+        mEstimator.onLoadStarted(start);
+        mEstimator.onLoadCompleted(start + latency);
+    }
+
+    @Test
+    public void minimumUntilALoadCompleted() {
+        mEstimator.onScroll(0, 0);
+        mEstimator.onScroll(10, 100);
+        assertEquals(3, mEstimator.getPrefetchItems(3));
+    }
+
+    @Test
+    public void itemsPassedWhileLoadingWithMargin() {
+        load(0, 200);
+        mEstimator.onScroll(0, 1000);
+        mEstimator.onScroll(10, 1100);
+        assertEquals(100f, mEstimator.getSpeed(), DELTA);
+        // 200ms at 100 items/s, 1.5 times
+        assertEquals(30, mEstimator.getPrefetchItems(1));
+        assertEquals(40, mEstimator.getPrefetchItems(40));
+    }
+
+    @Test
+    public void noMoreThanTheMax() {
+        mEstimator.setMaxItems(20);
+        load(0, 1000);
+        mEstimator.onScroll(0, 2000);
+        mEstimator.onScroll(10, 2100);
+        assertEquals(20, mEstimator.getPrefetchItems(1));
+    }
+
+    @Test
+    public void latencyIsAveraged() {
+        load(0, 1000);
+        assertEquals(1000f, mEstimator.getLatency(), DELTA);
+        load(2000, 2000);
+        assertEquals(1300f, mEstimator.getLatency(), DELTA);
+    }
+
+    @Test
+    public void canceledLoadIsNotMeasured() {
+        load(0, 1000);
+        mEstimator.onLoadStarted(2000);
+        mEstimator.onLoadCanceled();
+        mEstimator.onLoadCompleted(9000);
+        assertEquals(1000f, mEstimator.getLatency(), DELTA);
+    }
+
+    @Test
+    public void shortScrollsAreNotMeasured() {
+        mEstimator.onScroll(0, 0);
+        mEstimator.onScroll(10, 20);
+        assertEquals(0f, mEstimator.getSpeed(), DELTA);
+    }
+
+    @Test
+    public void scrollingBackStartsOver() {
+        mEstimator.onScroll(10, 0);
+        mEstimator.onScroll(0, 100);
+        mEstimator.onScroll(10, 200);
+        assertEquals(100f, mEstimator.getSpeed(), DELTA);
+    }
+
+    @Test
+    public void idleDropsTheFlingSpeed() {
+        mEstimator.onScroll(0, 0);
+        mEstimator.onScroll(10, 100);
+        mEstimator.onScroll(20, 150);
+        // The fling is faster than the average
+        assertEquals(200f, mEstimator.getSpeed(), DELTA);
+        mEstimator.onScrollIdle();
+        assertEquals(120f, mEstimator.getSpeed(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxItemsMustBePositive() {
+        mEstimator.setMaxItems(0);
+    }
+}
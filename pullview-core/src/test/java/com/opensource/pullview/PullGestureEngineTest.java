@@ -0,0 +1,242 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage The state transitions of {@link PullGestureEngine}.<br>
+ * <p>The threshold is 100, with the default resistance a move of 3 pixels pulls 1 pixel.
+ * The first move of a pull enters {@link #PULL_TO_LOAD} whatever the distance is.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PullGestureEngineTest implements IPullView {
+
+    private static final int THRESHOLD = 100;
+
+    private PullGestureEngine mEngine;
+    private final List<Integer> mStates = new ArrayList<>();
+    private final List<Integer> mReleasedEdges = new ArrayList<>();
+    private boolean mCanPullTop = true;
+    private boolean mCanPullBottom = false;
+    private boolean mStartLoading = true;
+
+    @Before
+    public void setUp() {
+        mEngine = new PullGestureEngine(new PullGestureEngine.Callback() {
+            @Override
+            public boolean canPull(int edge) {
+                return edge == PullGestureEngine.EDGE_TOP ? mCanPullTop : mCanPullBottom;
+            }
+
+            @Override
+            public int getPullThreshold(int edge) {
+                return THRESHOLD;
+            }
+
+            @Override
+            public void onPullChanged(int edge, int state, int lastState, int distance) {
+                mStates.add(state);
+            }
+
+            @Override
+            public boolean onPullRelease(int edge) {
+                mReleasedEdges.add(edge);
+                return mStartLoading;
+            }
+        });
+    }
+
+    @Test
+    public void pullOverThresholdAndReleaseLoads() {
+        mEngine.onDown(0, 0);
+        assertTrue(mEngine.onMove(150, 10));
+        assertEquals(PULL_TO_LOAD, mEngine.getState());
+        assertEquals(50, mEngine.getPullDistance());
+        assertTrue(mEngine.onMove(330, 20));
+        assertEquals(RELEASE_TO_LOAD, mEngine.getState());
+        assertEquals(PullGestureEngine.EDGE_TOP, mEngine.getEdge());
+
+        mEngine.onUp(0f);
+        assertEquals(LOADING, mEngine.getState());
+        assertEquals(1, mReleasedEdges.size());
+        assertEquals(PullGestureEngine.EDGE_TOP, (int) mReleasedEdges.get(0));
+        assertTrue(mEngine.isReleased());
+        assertEquals(PullGestureEngine.EDGE_NONE, mEngine.getEdge());
+    }
+
+    @Test
+    public void releaseUnderThresholdGoesIdle() {
+        mEngine.onDown(0, 0);
+        mEngine.onMove(150, 10);
+        mEngine.onUp(0f);
+        assertEquals(IDEL, mEngine.getState());
+        assertTrue(mReleasedEdges.isEmpty());
+    }
+
+    @Test
+    public void releaseNotLoadingGoesIdle() {
+        mStartLoading = false;
+        mEngine.onDown(0, 0);
+        mEngine.onMove(150, 10);
+        mEngine.onMove(330, 20);
+        mEngine.onUp(0f);
+        assertEquals(IDEL, mEngine.getState());
+        assertEquals(1, mReleasedEdges.size());
+    }
+
+    @Test
+    public void pullBackGoesIdle() {
+        mEngine.onDown(0, 0);
+        mEngine.onMove(150, 10);
+        mEngine.onMove(330, 20);
+        assertEquals(RELEASE_TO_LOAD, mEngine.getState());
+        mEngine.onMove(150, 30);
+        assertEquals(PULL_TO_LOAD, mEngine.getState());
+        assertFalse(mEngine.onMove(-10, 40));
+        assertEquals(IDEL, mEngine.getState());
+        // The list can scroll again
+        assertEquals(PullGestureEngine.EDGE_NONE, mEngine.getEdge());
+    }
+
+    @Test
+    public void cancelNeverLoads() {
+        mEngine.onDown(0, 0);
+        mEngine.onMove(150, 10);
+        mEngine.onMove(330, 20);
+        mEngine.onCancel();
+        assertEquals(IDEL, mEngine.getState());
+        assertTrue(mReleasedEdges.isEmpty());
+    }
+
+    @Test
+    public void touchSlopDoesNotPull() {
+        mEngine.setTouchSlop(10);
+        mEngine.onDown(0, 0);
+        assertFalse(mEngine.onMove(8, 10));
+        assertEquals(IDEL, mEngine.getState());
+        assertEquals(PullGestureEngine.EDGE_NONE, mEngine.getEdge());
+        // Counted from the slop
+        assertTrue(mEngine.onMove(160, 20));
+        assertEquals(50, mEngine.getPullDistance());
+    }
+
+    @Test
+    public void edgeNotPullableDoesNotPull() {
+        mCanPullTop = false;
+        mEngine.onDown(0, 0);
+        assertFalse(mEngine.onMove(330, 10));
+        assertEquals(IDEL, mEngine.getState());
+        assertTrue(mStates.isEmpty());
+    }
+
+    @Test
+    public void bottomEdgePullsUp() {
+        mCanPullTop = false;
+        mCanPullBottom = true;
+        mEngine.onDown(0, 0);
+        assertTrue(mEngine.onMove(-150, 10));
+        assertTrue(mEngine.onMove(-330, 20));
+        assertEquals(PullGestureEngine.EDGE_BOTTOM, mEngine.getEdge());
+        assertEquals(RELEASE_TO_LOAD, mEngine.getState());
+        mEngine.onUp(0f);
+        assertEquals(LOADING, mEngine.getState());
+        assertEquals(PullGestureEngine.EDGE_BOTTOM, (int) mReleasedEdges.get(0));
+    }
+
+    @Test
+    public void flingUnderThresholdLoads() {
+        mEngine.setFlingVelocity(1000f);
+        mEngine.onDown(0, 0);
+        // Over half of the threshold
+        mEngine.onMove(180, 10);
+        assertEquals(PULL_TO_LOAD, mEngine.getState());
+        mEngine.onUp(2000f);
+        assertEquals(LOADING, mEngine.getState());
+    }
+
+    @Test
+    public void slowReleaseUnderThresholdDoesNotFling() {
+        mEngine.setFlingVelocity(1000f);
+        mEngine.onDown(0, 0);
+        mEngine.onMove(180, 10);
+        mEngine.onUp(500f);
+        assertEquals(IDEL, mEngine.getState());
+    }
+
+    @Test
+    public void loadingIgnoresPull() {
+        mEngine.setState(LOADING);
+        mEngine.onDown(0, 0);
+        assertFalse(mEngine.onMove(330, 10));
+        mEngine.onUp(0f);
+        assertEquals(LOADING, mEngine.getState());
+        assertTrue(mReleasedEdges.isEmpty());
+    }
+
+    @Test
+    public void refreshSupersedesLoadMore() {
+        mEngine.setState(LOADING, PullGestureEngine.EDGE_BOTTOM);
+        mEngine.onDown(0, 0);
+        assertTrue(mEngine.onMove(150, 10));
+        assertTrue(mEngine.onMove(330, 20));
+        assertEquals(RELEASE_TO_LOAD, mEngine.getState());
+        mEngine.onUp(0f);
+        assertEquals(LOADING, mEngine.getState());
+        assertEquals(PullGestureEngine.EDGE_TOP, (int) mReleasedEdges.get(0));
+    }
+
+    @Test
+    public void supersedingPullLetGoKeepsLoadMore() {
+        mEngine.setState(LOADING, PullGestureEngine.EDGE_BOTTOM);
+        mEngine.onDown(0, 0);
+        mEngine.onMove(150, 10);
+        assertEquals(PULL_TO_LOAD, mEngine.getState());
+        mEngine.onUp(0f);
+        assertEquals(LOADING, mEngine.getState());
+        assertTrue(mReleasedEdges.isEmpty());
+    }
+
+    @Test
+    public void setStateEndsSuperseding() {
+        mEngine.setState(LOADING, PullGestureEngine.EDGE_BOTTOM);
+        mEngine.onDown(0, 0);
+        mEngine.onMove(150, 10);
+        // The load more completed while pulling
+        mEngine.setState(IDEL);
+        mEngine.onUp(0f);
+        assertEquals(IDEL, mEngine.getState());
+    }
+
+    @Test
+    public void velocityOfSamples() {
+        mEngine.onDown(0, 0);
+        mEngine.onMove(50, 50);
+        mEngine.onMove(100, 100);
+        assertEquals(1000f, mEngine.getVelocity(), 0.01f);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage The curves of {@link PullResistance}, in and out of its lookup table.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PullResistanceTest {
+
+    private static final float DELTA = 0.01f;
+
+    @Test
+    public void linearDividesByTheRatio() {
+        final PullResistance resistance = PullResistance.linear(3f);
+        assertEquals(0f, resistance.apply(0), DELTA);
+        assertEquals(100f, resistance.apply(300), DELTA);
+        assertEquals(10000f, resistance.apply(30000), DELTA);
+    }
+
+    @Test
+    public void linearStopsAtTheMaxDistance() {
+        final PullResistance resistance = PullResistance.create(PullResistance.TYPE_LINEAR, 2f, 100);
+        assertEquals(50f, resistance.apply(100), DELTA);
+        assertEquals(100f, resistance.apply(1000), DELTA);
+    }
+
+    @Test
+    public void curvesStartWithTheSlopeOfTheRatio() {
+        final PullResistance logarithmic = PullResistance.create(PullResistance.TYPE_LOGARITHMIC, 3f, 200);
+        final PullResistance elastic = PullResistance.create(PullResistance.TYPE_ELASTIC, 3f, 200);
+        assertEquals(1f, logarithmic.apply(3), 0.05f);
+        assertEquals(1f, elastic.apply(3), 0.05f);
+    }
+
+    @Test
+    public void elasticFollowsItsCurve() {
+        final PullResistance resistance = PullResistance.create(PullResistance.TYPE_ELASTIC, 2f, 100);
+        // max * move / (move + ratio * max)
+        assertEquals(100f * 200 / (200 + 200), resistance.apply(200), 0.5f);
+        assertEquals(100f * 1000 / (1000 + 200), resistance.apply(1000), 0.5f);
+    }
+
+    @Test
+    public void elasticNeverGetsOverMax() {
+        final PullResistance resistance = PullResistance.create(PullResistance.TYPE_ELASTIC, 2f, 100);
+        float last = 0f;
+        // The table covers moves up to 1600, the rest is extrapolated
+        for (int move = 0; move <= 100000; move += 50) {
+            final float distance = resistance.apply(move);
+            assertTrue(distance >= last);
+            assertTrue(distance <= 100f);
+            last = distance;
+        }
+        assertEquals(100f, resistance.apply(Integer.MAX_VALUE / 2), DELTA);
+    }
+
+    @Test
+    public void logarithmicKeepsGrowingOutOfTheTable() {
+        final PullResistance resistance = PullResistance.create(PullResistance.TYPE_LOGARITHMIC, 2f, 100);
+        assertTrue(resistance.apply(20000) > resistance.apply(10000));
+    }
+
+    @Test
+    public void negativeMoveIsLinear() {
+        final PullResistance resistance = PullResistance.create(PullResistance.TYPE_ELASTIC, 2f, 100);
+        assertEquals(-5f, resistance.apply(-10), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ratioMustBePositive() {
+        PullResistance.create(PullResistance.TYPE_LINEAR, 0f, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void curveNeedsMaxDistance() {
+        PullResistance.create(PullResistance.TYPE_ELASTIC, 3f, 0);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage The retries and the delays of {@link RetryPolicy}.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void retriesUpToMax() {
+        final RetryPolicy policy = new RetryPolicy(2, 100, 1000);
+        assertTrue(policy.shouldRetry(0));
+        assertTrue(policy.shouldRetry(1));
+        assertFalse(policy.shouldRetry(2));
+        assertFalse(new RetryPolicy(0, 100, 1000).shouldRetry(0));
+    }
+
+    @Test
+    public void delayDoublesUpToMax() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        assertEquals(100, policy.getDelay(0, 1f));
+        assertEquals(200, policy.getDelay(1, 1f));
+        assertEquals(800, policy.getDelay(3, 1f));
+        assertEquals(1000, policy.getDelay(4, 1f));
+    }
+
+    @Test
+    public void jitterIsHalfOfDelay() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        assertEquals(100, policy.getDelay(1, 0f));
+        assertEquals(150, policy.getDelay(1, 0.5f));
+        for (int i = 0; i < 100; i++) {
+            final long delay = policy.getDelay(2);
+            assertTrue(delay >= 200 && delay <= 400);
+        }
+    }
+
+    @Test
+    public void largeRetryDoesNotOverflow() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        assertEquals(1000, policy.getDelay(62, 1f));
+        assertEquals(1000, policy.getDelay(63, 1f));
+        assertEquals(1000, policy.getDelay(Integer.MAX_VALUE, 1f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeRetries() {
+        new RetryPolicy(-1, 100, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxDelayUnderBaseDelay() {
+        new RetryPolicy(1, 1000, 100);
+    }
+}
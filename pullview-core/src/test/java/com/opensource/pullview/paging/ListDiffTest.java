@@ -0,0 +1,206 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage The matches of {@link ListDiff}, checked against the longest common subsequence.<br>
+ * <p>An item is an id letter and a content digit, "a1" and "a2" are the same item with other contents.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class ListDiffTest {
+
+    private static ListDiff diff(final List<String> oldItems, final List<String> newItems) {
+        return ListDiff.compute(new ListDiff.Callback() {
+            @Override
+            public int getOldSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldItems.get(oldPosition).charAt(0) == newItems.get(newPosition).charAt(0);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return oldItems.get(oldPosition).equals(newItems.get(newPosition));
+            }
+        });
+    }
+
+    private static List<String> list(String... items) {
+        return Arrays.asList(items);
+    }
+
+    /**
+     * The length of the longest common subsequence of the ids, by dynamic programming
+     */
+    private static int lcs(List<String> oldItems, List<String> newItems) {
+        final int[][] lengths = new int[oldItems.size() + 1][newItems.size() + 1];
+        for (int x = 1; x <= oldItems.size(); x++) {
+            for (int y = 1; y <= newItems.size(); y++) {
+                if (oldItems.get(x - 1).charAt(0) == newItems.get(y - 1).charAt(0)) {
+                    lengths[x][y] = lengths[x - 1][y - 1] + 1;
+                } else {
+                    lengths[x][y] = Math.max(lengths[x - 1][y], lengths[x][y - 1]);
+                }
+            }
+        }
+        return lengths[oldItems.size()][newItems.size()];
+    }
+
+    /**
+     * The matches are the same items, in order, both ways, and as many as the longest common subsequence
+     */
+    private static void assertDiff(List<String> oldItems, List<String> newItems) {
+        final ListDiff diff = diff(oldItems, newItems);
+        final String lists = oldItems + " -> " + newItems;
+        int matches = 0;
+        int lastNew = -1;
+        for (int x = 0; x < oldItems.size(); x++) {
+            final int y = diff.getNewPosition(x);
+            if (y < 0) {
+                continue;
+            }
+            matches++;
+            assertTrue(lists, y > lastNew);
+            lastNew = y;
+            assertEquals(lists, oldItems.get(x).charAt(0), newItems.get(y).charAt(0));
+            assertEquals(lists, x, diff.getOldPosition(y));
+        }
+        for (int y = 0; y < newItems.size(); y++) {
+            final int x = diff.getOldPosition(y);
+            if (x >= 0) {
+                assertEquals(lists, y, diff.getNewPosition(x));
+            }
+            assertEquals(lists, x < 0 || !oldItems.get(x).equals(newItems.get(y)), diff.isChanged(y));
+        }
+        assertEquals(lists, lcs(oldItems, newItems), matches);
+    }
+
+    @Test
+    public void sameLists() {
+        final ListDiff diff = diff(list("a0", "b0", "c0"), list("a0", "b0", "c0"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, diff.getNewPosition(i));
+            assertFalse(diff.isChanged(i));
+        }
+    }
+
+    @Test
+    public void insertedOnTop() {
+        final ListDiff diff = diff(list("a0", "b0"), list("x0", "y0", "a0", "b0"));
+        assertEquals(-1, diff.getOldPosition(0));
+        assertEquals(-1, diff.getOldPosition(1));
+        assertTrue(diff.isChanged(0));
+        assertEquals(2, diff.getNewPosition(0));
+        assertEquals(3, diff.getNewPosition(1));
+        assertFalse(diff.isChanged(3));
+    }
+
+    @Test
+    public void removedAndChanged() {
+        final ListDiff diff = diff(list("a0", "b0", "c0"), list("a0", "c1"));
+        assertEquals(-1, diff.getNewPosition(1));
+        assertEquals(1, diff.getNewPosition(2));
+        assertFalse(diff.isChanged(0));
+        assertTrue(diff.isChanged(1));
+    }
+
+    @Test
+    public void emptyLists() {
+        assertDiff(list(), list());
+        assertDiff(list(), list("a0", "b0"));
+        assertDiff(list("a0", "b0"), list());
+    }
+
+    @Test
+    public void edgeCases() {
+        assertDiff(list("a0"), list("b0"));
+        assertDiff(list("a0", "b0", "c0"), list("c0", "b0", "a0"));
+        assertDiff(list("a0", "a0", "a0"), list("a0"));
+        assertDiff(list("a0", "b0", "a0", "b0"), list("b0", "a0", "b0", "a0"));
+        assertDiff(list("a0", "b0", "c0", "d0"), list("b0", "c0", "d0", "e0"));
+    }
+
+    @Test
+    public void randomLists() {
+        final Random random = new Random(20161017L);
+        for (int i = 0; i < 2000; i++) {
+            assertDiff(randomList(random), randomList(random));
+        }
+    }
+
+    @Test
+    public void randomEdits() {
+        final Random random = new Random(42L);
+        for (int i = 0; i < 500; i++) {
+            final List<String> oldItems = randomList(random);
+            final List<String> newItems = new ArrayList<>(oldItems);
+            for (int edits = random.nextInt(4); edits > 0; edits--) {
+                final int position = newItems.isEmpty() ? 0 : random.nextInt(newItems.size());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        newItems.add(position, randomItem(random));
+                        break;
+                    case 1:
+                        if (!newItems.isEmpty()) {
+                            newItems.remove(position);
+                        }
+                        break;
+                    default:
+                        if (!newItems.isEmpty()) {
+                            newItems.set(position, newItems.get(position).charAt(0) + "9");
+                        }
+                        break;
+                }
+            }
+            assertDiff(oldItems, newItems);
+        }
+    }
+
+    private static List<String> randomList(Random random) {
+        final int size = random.nextInt(20);
+        final List<String> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(randomItem(random));
+        }
+        return items;
+    }
+
+    private static String randomItem(Random random) {
+        return (char) ('a' + random.nextInt(5)) + String.valueOf(random.nextInt(2));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage The size, the eviction and the first pages of {@link PageCache}.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PageCacheTest {
+
+    private static Page<Integer, String> page(Integer nextKey, String... items) {
+        return new Page<>(Arrays.asList(items), nextKey);
+    }
+
+    @Test
+    public void sizeIsItemCount() {
+        final PageCache<Integer, String> cache = new PageCache<>(10);
+        cache.put(null, page(1, "a", "b"));
+        cache.put(1, page(2, "c"));
+        assertEquals(3, cache.size());
+        cache.put(1, page(2, "c", "d", "e"));
+        assertEquals(5, cache.size());
+        cache.remove(null);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final PageCache<Integer, String> cache = new PageCache<>(4);
+        cache.put(null, page(1, "a", "b"));
+        cache.put(1, page(2, "c", "d"));
+        // Used, the page of the key 1 is the eldest now
+        cache.get(null);
+        cache.put(2, page(3, "e"));
+        assertNull(cache.get(1));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void firstPagesFollowEachOther() {
+        final PageCache<Integer, String> cache = new PageCache<>(100);
+        cache.put(null, page(1, "a"));
+        cache.put(1, page(2, "b"));
+        cache.put(3, page(4, "d"));
+
+        final List<Page<Integer, String>> pages = cache.getFirstPageList();
+        assertEquals(2, pages.size());
+        assertEquals(Arrays.asList("a"), pages.get(0).getItems());
+        assertEquals(Arrays.asList("b"), pages.get(1).getItems());
+        assertEquals(2, (int) pages.get(1).getNextKey());
+    }
+
+    @Test
+    public void firstPagesLinkingBackDontLoop() {
+        final PageCache<Integer, String> cache = new PageCache<>(100);
+        cache.put(null, page(1, "a"));
+        cache.put(1, page(2, "b"));
+        cache.put(2, page(1, "c"));
+        assertEquals(3, cache.getFirstPageList().size());
+    }
+
+    @Test
+    public void noFirstPage() {
+        final PageCache<Integer, String> cache = new PageCache<>(100);
+        cache.put(1, page(2, "b"));
+        assertTrue(cache.getFirstPageList().isEmpty());
+    }
+
+    @Test
+    public void trimAndClear() {
+        final PageCache<Integer, String> cache = new PageCache<>(100);
+        cache.put(null, page(1, "a", "b"));
+        cache.put(1, page(2, "c"));
+        cache.trimToSize(1);
+        assertNull(cache.get(null));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxSizeMustBePositive() {
+        new PageCache<Integer, String>(0);
+    }
+}
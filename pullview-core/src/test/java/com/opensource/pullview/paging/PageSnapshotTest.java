@@ -0,0 +1,224 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage Writes and reads {@link PageSnapshot}, a broken file reads as no snapshot and is deleted.<br>
+ * <p>The file starts with the magic, the version and the page count, then the item count of the first page.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PageSnapshotTest {
+
+    private static final int OFFSET_COUNT = 8;
+    private static final int OFFSET_FIRST_SIZE = 12;
+
+    private File mFile;
+    private PageSnapshot<Integer, String> mSnapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("snapshot", ".bin");
+        mSnapshot = new PageSnapshot<>(mFile, 2, PageSnapshot.INTEGER_CODEC, PageSnapshot.STRING_CODEC);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+        new File(mFile.getPath() + ".tmp").delete();
+    }
+
+    private static List<Page<Integer, String>> pages(int count) {
+        final List<Page<Integer, String>> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pages.add(new Page<>(Arrays.asList("item" + i, "中" + i), i + 1));
+        }
+        return pages;
+    }
+
+    private void writeInt(int offset, int value) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.seek(offset);
+            file.writeInt(value);
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final List<Page<Integer, String>> pages = pages(1);
+        pages.add(new Page<>(Arrays.asList("last"), (Integer) null));
+        mSnapshot.write(pages);
+
+        final List<Page<Integer, String>> read = mSnapshot.read();
+        assertEquals(2, read.size());
+        assertEquals(Arrays.asList("item0", "中0"), read.get(0).getItems());
+        assertEquals(1, (int) read.get(0).getNextKey());
+        assertEquals(Arrays.asList("last"), read.get(1).getItems());
+        assertFalse(read.get(1).hasNext());
+        assertNull(read.get(1).getNextKey());
+    }
+
+    @Test
+    public void roundTripPreviousKey() throws IOException {
+        final List<Page<Integer, String>> pages = new ArrayList<>();
+        pages.add(new Page<>(Arrays.asList("middle"), 4, 6));
+        mSnapshot.write(pages);
+
+        final Page<Integer, String> read = mSnapshot.read().get(0);
+        assertTrue(read.hasPrevious());
+        assertEquals(4, (int) read.getPreviousKey());
+        assertEquals(6, (int) read.getNextKey());
+    }
+
+    @Test
+    public void writesFirstPagesOnly() throws IOException {
+        mSnapshot.write(pages(3));
+        final List<Page<Integer, String>> read = mSnapshot.read();
+        assertEquals(2, read.size());
+        assertEquals(2, (int) read.get(1).getNextKey());
+    }
+
+    @Test
+    public void writeReplacesOldSnapshot() throws IOException {
+        mSnapshot.write(pages(2));
+        mSnapshot.write(pages(1));
+        assertEquals(1, mSnapshot.read().size());
+        assertFalse(new File(mFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void emptyPages() throws IOException {
+        mSnapshot.write(new ArrayList<Page<Integer, String>>());
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void missingFileReadsEmpty() {
+        mFile.delete();
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void deleteRemovesSnapshot() throws IOException {
+        mSnapshot.write(pages(1));
+        mSnapshot.delete();
+        assertFalse(mFile.exists());
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void emptyFileReadsEmpty() {
+        // createTempFile leaves it empty
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void otherFileReadsEmpty() throws IOException {
+        mSnapshot.write(pages(1));
+        writeInt(0, 0x12345678);
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void negativePageCountReadsEmpty() throws IOException {
+        mSnapshot.write(pages(1));
+        writeInt(OFFSET_COUNT, -1);
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void pageCountOverMaxReadsEmpty() throws IOException {
+        mSnapshot.write(pages(1));
+        writeInt(OFFSET_COUNT, Integer.MAX_VALUE);
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void negativeItemCountReadsEmpty() throws IOException {
+        mSnapshot.write(pages(1));
+        writeInt(OFFSET_FIRST_SIZE, Integer.MIN_VALUE);
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void itemCountOverFileReadsEmpty() throws IOException {
+        mSnapshot.write(pages(1));
+        writeInt(OFFSET_FIRST_SIZE, Integer.MAX_VALUE);
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void truncatedFileReadsEmpty() throws IOException {
+        mSnapshot.write(pages(2));
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+        assertTrue(mSnapshot.read().isEmpty());
+    }
+
+    @Test
+    public void otherVersionIsDeleted() throws IOException {
+        mSnapshot.write(pages(1));
+        writeInt(4, 1);
+        assertTrue(mSnapshot.read().isEmpty());
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void codecFailingIsDeleted() throws IOException {
+        final PageSnapshot<Integer, String> snapshot = new PageSnapshot<>(mFile, 2, PageSnapshot.INTEGER_CODEC,
+                new PageSnapshot.Codec<String>() {
+                    @Override
+                    public void write(DataOutput out, String value) throws IOException {
+                        out.writeUTF(value);
+                    }
+
+                    @Override
+                    public String read(DataInput in) throws IOException {
+                        throw new IllegalStateException("Can't parse " + in.readUTF());
+                    }
+                });
+        snapshot.write(pages(1));
+        assertTrue(snapshot.read().isEmpty());
+        assertFalse(mFile.exists());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage The pages of {@link PageWindow}: append, prepend, trim and set.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PageWindowTest {
+
+    private static Page<Integer, String> page(String... items) {
+        return new Page<>(Arrays.asList(items), (Integer) null);
+    }
+
+    private static PageWindow<Integer, String> window(int maxPages, int pages) {
+        final PageWindow<Integer, String> window = new PageWindow<>(maxPages);
+        for (int i = 0; i < pages; i++) {
+            window.append(i, page("p" + i + "a", "p" + i + "b"));
+        }
+        return window;
+    }
+
+    @Test
+    public void appendKeepsPositions() {
+        final PageWindow<Integer, String> window = window(3, 3);
+        assertEquals(6, window.getCount());
+        assertEquals(3, window.getPageCount());
+        assertEquals(1, window.getPageIndex(3));
+        assertEquals("p1b", window.getItem(3));
+        assertEquals(2, (int) window.getKey(2));
+    }
+
+    @Test
+    public void emptyPagesAreSkipped() {
+        final PageWindow<Integer, String> window = new PageWindow<>(3);
+        window.append(0, page("a"));
+        window.append(1, page());
+        window.append(2, page("b"));
+        assertEquals(2, window.getCount());
+        assertEquals(2, window.getPageIndex(1));
+        assertEquals(0, window.getPageSize(1));
+    }
+
+    @Test
+    public void trimDropsFarthestPages() {
+        final PageWindow<Integer, String> window = window(2, 5);
+        window.trim(3);
+        assertEquals(2, window.getLoadedPageCount());
+        assertTrue(window.isLoaded(3));
+        // The same distance, the first one found is kept
+        assertTrue(window.isLoaded(2) || window.isLoaded(4));
+        assertFalse(window.isLoaded(0));
+        assertFalse(window.isLoaded(1));
+        // The dropped pages keep their positions
+        assertEquals(10, window.getCount());
+        assertNull(window.getItem(0));
+        assertEquals("p3a", window.getItem(6));
+    }
+
+    @Test
+    public void trimNeverDropsCenterPage() {
+        final PageWindow<Integer, String> window = window(1, 3);
+        window.trim(0);
+        assertEquals(1, window.getLoadedPageCount());
+        assertTrue(window.isLoaded(0));
+    }
+
+    @Test
+    public void setLoadsDroppedPageAgain() {
+        final PageWindow<Integer, String> window = window(1, 3);
+        window.trim(2);
+        assertFalse(window.isLoaded(0));
+        window.set(0, page("x", "y"));
+        assertTrue(window.isLoaded(0));
+        assertEquals(2, window.getLoadedPageCount());
+        assertEquals("y", window.getItem(1));
+    }
+
+    @Test
+    public void setKeepsPageSize() {
+        final PageWindow<Integer, String> window = window(1, 3);
+        window.trim(2);
+        // The extra item is dropped, the next page doesn't move
+        window.set(0, page("x", "y", "z"));
+        assertEquals(6, window.getCount());
+        assertEquals("y", window.getItem(1));
+        assertNull(window.getItem(2));
+        // The missing item stays null
+        window.set(1, page("w"));
+        assertEquals("w", window.getItem(2));
+        assertNull(window.getItem(3));
+    }
+
+    @Test
+    public void prependMovesPagesDown() {
+        final PageWindow<Integer, String> window = window(3, 2);
+        window.prepend(-1, page("n1", "n2", "n3"));
+        assertEquals(7, window.getCount());
+        assertEquals(3, window.getPageCount());
+        assertEquals(-1, (int) window.getKey(0));
+        assertEquals(0, (int) window.getKey(1));
+        assertEquals("n3", window.getItem(2));
+        assertEquals("p0a", window.getItem(3));
+        assertEquals(2, window.getPageIndex(5));
+    }
+
+    @Test
+    public void prependThenTrim() {
+        final PageWindow<Integer, String> window = window(2, 2);
+        window.prepend(-1, page("n"));
+        window.trim(0);
+        assertTrue(window.isLoaded(0));
+        assertTrue(window.isLoaded(1));
+        assertFalse(window.isLoaded(2));
+        assertNull(window.getItem(3));
+    }
+
+    @Test
+    public void clearRemovesAll() {
+        final PageWindow<Integer, String> window = window(3, 3);
+        window.clear();
+        assertEquals(0, window.getCount());
+        assertEquals(0, window.getPageCount());
+        assertEquals(0, window.getLoadedPageCount());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void positionOutOfRange() {
+        window(3, 1).getPageIndex(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxPagesMustBePositive() {
+        new PageWindow<Integer, String>(0);
+    }
+
+    @Test
+    public void pagesAreCopied() {
+        final List<String> items = new ArrayList<>(Arrays.asList("a", "b"));
+        final PageWindow<Integer, String> window = new PageWindow<>(1);
+        window.append(0, new Page<>(items, (Integer) null));
+        items.set(0, "changed");
+        assertEquals("a", window.getItem(0));
+    }
+}
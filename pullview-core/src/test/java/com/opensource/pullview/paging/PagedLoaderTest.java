@@ -0,0 +1,348 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview.paging;
+
+import com.opensource.pullview.CancellationSignal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Usage How {@link PagedLoader} loads and delivers the pages.<br>
+ * <p>The loads wait in a queue until {@link #runLoads()}, the results are delivered on the same thread,
+ * so a test decides what happens between a load and its result.<br>
+ * <p>The source has the pages 1 to {@link #mLastPage}, 3 by default, the null key loads page 1.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+public class PagedLoaderTest {
+
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final List<Runnable> mLoads = new ArrayList<Runnable>();
+    private final List<String> mDelivered = new ArrayList<String>();
+    private final List<Integer> mLoadedKeys = new ArrayList<Integer>();
+    private PagedLoader<Integer, String> mLoader;
+    private int mLastPage = 3;
+
+    @Before
+    public void setUp() {
+        mLoader = new PagedLoader<Integer, String>(new PagedSource<Integer, String>() {
+            @Override
+            public Page<Integer, String> load(Integer key, CancellationSignal signal) throws Exception {
+                final int number = null == key ? 1 : key;
+                mLoadedKeys.add(number);
+                return new Page<Integer, String>(Arrays.asList(number + "a", number + "b"),
+                        number > 1 ? number - 1 : null, number < mLastPage ? number + 1 : null);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mLoads.add(command);
+            }
+        }, DIRECT, new PagedLoader.Callback<Integer, String>() {
+            @Override
+            public void onPageLoaded(int type, Page<Integer, String> page) {
+                mDelivered.add(type + ":" + page.getItems().get(0));
+            }
+
+            @Override
+            public void onLoadFailed(int type, Throwable error) {
+                mDelivered.add(type + ":failed");
+            }
+        });
+    }
+
+    /**
+     * Run the loads waiting, and the ones they start
+     */
+    private void runLoads() {
+        while (!mLoads.isEmpty()) {
+            mLoads.remove(0).run();
+        }
+    }
+
+    @Test
+    public void refreshLoadsTheFirstPage() {
+        mLoader.refresh();
+        assertTrue(mLoader.isLoading());
+        runLoads();
+        assertFalse(mLoader.isLoading());
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":1a"), mDelivered);
+        assertEquals(Integer.valueOf(2), mLoader.getNextKey());
+        assertTrue(mLoader.hasMore());
+        assertFalse(mLoader.hasPrevious());
+    }
+
+    @Test
+    public void loadMoreFollowsTheLastPage() {
+        mLoader.refresh();
+        runLoads();
+        assertTrue(mLoader.loadMore());
+        // One load at a time
+        assertFalse(mLoader.loadMore());
+        runLoads();
+        assertTrue(mLoader.loadMore());
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":1a", PagedLoader.LOAD_MORE + ":2a",
+                PagedLoader.LOAD_MORE + ":3a"), mDelivered);
+        assertFalse(mLoader.hasMore());
+        assertFalse(mLoader.loadMore());
+    }
+
+    @Test
+    public void dropsTheLoadMoreOfAnOlderGeneration() {
+        mLoader.refresh();
+        runLoads();
+        mLoader.loadMore();
+        final Runnable staleLoad = mLoads.remove(0);
+        mLoader.refresh();
+        assertEquals(2, mLoader.getGeneration());
+        // Loaded after the refresh, the page 2 doesn't follow the new page 1
+        staleLoad.run();
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":1a", PagedLoader.LOAD_REFRESH + ":1a"), mDelivered);
+        assertEquals(Integer.valueOf(2), mLoader.getNextKey());
+    }
+
+    @Test
+    public void dropsTheResultDeliveredAfterARefresh() {
+        final List<Runnable> deliveries = new ArrayList<Runnable>();
+        final PagedLoader<Integer, String> loader = new PagedLoader<Integer, String>(
+                new PagedSource<Integer, String>() {
+                    @Override
+                    public Page<Integer, String> load(Integer key, CancellationSignal signal) {
+                        return new Page<Integer, String>(Arrays.asList("item"), (Integer) null);
+                    }
+                }, DIRECT, new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        deliveries.add(command);
+                    }
+                }, new PagedLoader.Callback<Integer, String>() {
+                    @Override
+                    public void onPageLoaded(int type, Page<Integer, String> page) {
+                        mDelivered.add(type + ":" + page.getItems().get(0));
+                    }
+
+                    @Override
+                    public void onLoadFailed(int type, Throwable error) {
+                        mDelivered.add(type + ":failed");
+                    }
+                });
+        loader.refresh();
+        final Runnable stale = deliveries.remove(0);
+        loader.refresh();
+        // Loaded before the second refresh, delivered after it
+        stale.run();
+        assertTrue(mDelivered.isEmpty());
+        assertTrue(loader.isLoading());
+        deliveries.remove(0).run();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":item"), mDelivered);
+        assertFalse(loader.isLoading());
+    }
+
+    @Test
+    public void cancelSkipsTheLoadWaiting() {
+        mLoader.refresh();
+        runLoads();
+        mLoader.loadMore();
+        mLoader.cancel();
+        assertFalse(mLoader.isLoading());
+        runLoads();
+        // Not loaded at all, nothing delivered
+        assertEquals(Arrays.asList(1), mLoadedKeys);
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":1a"), mDelivered);
+        // Loaded again when attached again
+        assertTrue(mLoader.loadMore());
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":1a", PagedLoader.LOAD_MORE + ":2a"), mDelivered);
+    }
+
+    @Test
+    public void dropsTheResultOfACanceledLoad() {
+        final CancellationSignal[] signal = new CancellationSignal[1];
+        final PagedLoader<Integer, String> loader = new PagedLoader<Integer, String>(
+                new PagedSource<Integer, String>() {
+                    @Override
+                    public Page<Integer, String> load(Integer key, CancellationSignal s) {
+                        signal[0] = s;
+                        // Canceled while loading, the source may not check the signal
+                        mLoader.cancel();
+                        return new Page<Integer, String>(Arrays.asList("item"), (Integer) null);
+                    }
+                }, DIRECT, DIRECT, new PagedLoader.Callback<Integer, String>() {
+                    @Override
+                    public void onPageLoaded(int type, Page<Integer, String> page) {
+                        mDelivered.add(type + ":" + page.getItems().get(0));
+                    }
+
+                    @Override
+                    public void onLoadFailed(int type, Throwable error) {
+                        mDelivered.add(type + ":failed");
+                    }
+                });
+        mLoader = loader;
+        loader.refresh();
+        assertTrue(signal[0].isCanceled());
+        assertTrue(mDelivered.isEmpty());
+        assertFalse(loader.isLoading());
+    }
+
+    @Test
+    public void revalidatesTheFirstPageAndKeepsTheCachedOnes() {
+        mLoader.setCache(new PageCache<Integer, String>(100));
+        mLoader.refresh();
+        runLoads();
+        mLoader.loadMore();
+        runLoads();
+        mLoader.loadMore();
+        runLoads();
+        mDelivered.clear();
+        mLoadedKeys.clear();
+
+        mLoader.refresh();
+        // The cached pages are shown at once
+        assertEquals(Arrays.asList(PagedLoader.LOAD_CACHED + ":1a", PagedLoader.LOAD_CACHED_MORE + ":2a",
+                PagedLoader.LOAD_CACHED_MORE + ":3a"), mDelivered);
+        mDelivered.clear();
+        runLoads();
+        // Only the first page is loaded again, the list keeps the pages after it
+        assertEquals(Arrays.asList(1), mLoadedKeys);
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":1a", PagedLoader.LOAD_CACHED_MORE + ":2a",
+                PagedLoader.LOAD_CACHED_MORE + ":3a"), mDelivered);
+        assertFalse(mLoader.hasMore());
+        assertEquals(3, mLoader.getCache().getFirstPageList().size());
+    }
+
+    @Test
+    public void dropsTheCachedPagesNotFollowingTheFirstOne() {
+        mLoader.setCache(new PageCache<Integer, String>(100));
+        mLoader.refresh();
+        runLoads();
+        mLoader.loadMore();
+        runLoads();
+        mDelivered.clear();
+
+        mLastPage = 1;
+        mLoader.refresh();
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_CACHED + ":1a", PagedLoader.LOAD_CACHED_MORE + ":2a",
+                PagedLoader.LOAD_REFRESH + ":1a"), mDelivered);
+        assertFalse(mLoader.hasMore());
+        assertEquals(1, mLoader.getCache().getFirstPageList().size());
+        assertNull(mLoader.getCache().get(2));
+    }
+
+    @Test
+    public void restoresTheSnapshot() throws IOException {
+        final File file = File.createTempFile("snapshot", ".bin");
+        try {
+            final PageSnapshot<Integer, String> snapshot = new PageSnapshot<Integer, String>(file, 2,
+                    PageSnapshot.INTEGER_CODEC, PageSnapshot.STRING_CODEC);
+            mLoader.setInitialKey(2);
+            mLoader.setSnapshot(snapshot);
+            mLoader.refresh();
+            runLoads();
+            mLoader.loadMore();
+            // The snapshot is written by the load
+            runLoads();
+            assertEquals(2, snapshot.read().size());
+            mDelivered.clear();
+
+            mLoader.setSnapshot(snapshot);
+            assertTrue(mLoader.restoreSnapshot());
+            assertEquals(Arrays.asList(PagedLoader.LOAD_CACHED + ":2a", PagedLoader.LOAD_CACHED_MORE + ":3a"),
+                    mDelivered);
+            assertFalse(mLoader.hasMore());
+            // The pages before the restored ones can be loaded
+            assertTrue(mLoader.hasPrevious());
+            assertEquals(Integer.valueOf(1), mLoader.getPreviousKey());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void loadsThePagesBeforeTheInitialOne() {
+        mLoader.setInitialKey(3);
+        assertFalse(mLoader.loadPrevious());
+        mLoader.refresh();
+        runLoads();
+        assertTrue(mLoader.hasPrevious());
+        assertTrue(mLoader.loadPrevious());
+        assertFalse(mLoader.loadPrevious());
+        runLoads();
+        assertTrue(mLoader.loadPrevious());
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":3a", PagedLoader.LOAD_PREVIOUS + ":2a",
+                PagedLoader.LOAD_PREVIOUS + ":1a"), mDelivered);
+        assertFalse(mLoader.hasPrevious());
+        assertFalse(mLoader.loadPrevious());
+        // The pages before don't change the next page
+        assertFalse(mLoader.hasMore());
+    }
+
+    @Test
+    public void loadPreviousRunsBesideLoadMore() {
+        mLastPage = 4;
+        mLoader.setInitialKey(2);
+        mLoader.refresh();
+        runLoads();
+        assertTrue(mLoader.loadMore());
+        assertTrue(mLoader.loadPrevious());
+        mLoader.cancelPrevious();
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":2a", PagedLoader.LOAD_MORE + ":3a"), mDelivered);
+        // Not loaded, it can be loaded again
+        assertTrue(mLoader.hasPrevious());
+        assertTrue(mLoader.loadPrevious());
+        runLoads();
+        assertEquals(PagedLoader.LOAD_PREVIOUS + ":1a", mDelivered.get(2));
+    }
+
+    @Test
+    public void refreshDropsTheLoadPrevious() {
+        mLoader.setInitialKey(2);
+        mLoader.refresh();
+        runLoads();
+        mLoader.loadPrevious();
+        mLoader.refresh();
+        assertFalse(mLoader.isLoadingPrevious());
+        runLoads();
+        assertEquals(Arrays.asList(PagedLoader.LOAD_REFRESH + ":2a", PagedLoader.LOAD_REFRESH + ":2a"), mDelivered);
+    }
+}
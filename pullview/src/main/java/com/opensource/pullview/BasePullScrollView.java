@@ -28,6 +28,8 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
 import android.view.animation.RotateAnimation;
 import android.widget.LinearLayout;
@@ -38,7 +40,7 @@ import com.opensource.pullview.utils.ViewUtil;
 /**
  * Created by xiaoying on 14-9-15.
  */
-public abstract class BasePullScrollView extends ScrollView implements IPullView {
+public abstract class BasePullScrollView extends ScrollView implements IPullView, PullGestureEngine.Callback {
 
     /**
      * The rotate up anim.
@@ -65,13 +67,9 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
      */
     protected int mFootContentHeight;
     /**
-     * The top position of the scroll
+     * The scroll position, shared with the pull logic in pullview-core
      */
-    protected int mTopPosition;
-    /**
-     * The bottom position of the scroll
-     */
-    protected int mBottomPosition;
+    protected final PullScrollMetrics mScrollMetrics = new PullScrollMetrics();
     /**
      * Enable pull refresh.
      */
@@ -84,14 +82,22 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
      * Pull refreshing.
      */
     protected boolean mRefreshing = false;
+    /**
+     * The signal of the refresh going on
+     */
+    protected CancellationSignal mLoadSignal = null;
+    /**
+     * Applies the completions posted from any thread
+     */
+    private PullCompletion mCompletion;
     /**
      * The listener on refresh data.
      */
     protected OnRefreshListener mOnRefreshListener = null;
     /**
-     * The state of the PullView.
+     * The interpolator of the animation after released, null to use the default one
      */
-    protected int mState = IDEL;
+    protected Interpolator mSettleInterpolator = null;
 
     /**
      * Constructor
@@ -179,44 +185,81 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
-        mTopPosition = t;
-        mBottomPosition = t + getHeight();
+        if (getChildCount() > 0) {
+            mScrollMetrics.setScroll(t, getHeight(), getChildAt(0).getMeasuredHeight());
+        }
     }
 
-    private int mLastY = 0;
-    private int mStartY = 0;
-    private boolean mRecording = false;
+    protected PullGestureEngine mEngine;
+
+    private PullTouchTracker mTouchTracker;
+
+    /**
+     * Applies the pull offset once per frame
+     */
+    protected PullFrameScheduler mFrameScheduler;
+
+    private int mLastFootDistance = 0;
+
+    private boolean mFooterPending = false;
+    private int mPendingFootDistance = 0;
+    private PullSettler mFooterSettler;
+
+    /**
+     * The touch events are held back from the scroll view while pulling
+     */
+    private boolean mTouchHeld = false;
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        updateScrollMetrics();
+        if (mTouchTracker.onInterceptTouchEvent(event)) {
+            // The pull owns the gesture now, the children get ACTION_CANCEL
+            mTouchHeld = true;
+            getParent().requestDisallowInterceptTouchEvent(true);
+            return true;
+        }
+        return super.onInterceptTouchEvent(event);
+    }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
+        updateScrollMetrics();
+        switch (PullTouchTracker.getActionMasked(event)) {
             case MotionEvent.ACTION_DOWN:
-                mStartY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mBottomPosition == getChildAt(0).getMeasuredHeight();
-                }
+                mTouchTracker.onDown(event);
                 break;
             case MotionEvent.ACTION_MOVE:
-                int tempY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mBottomPosition == getChildAt(0).getMeasuredHeight();
-                    mStartY = mRecording ? tempY : mStartY;
+                if (holdTouch(event, mTouchTracker.onMove(event))) {
+                    return true;
                 }
-                if (mRecording && mEnableOverScroll) {
-                    int moveY = mStartY - tempY;
-                    int scrollY = moveY / OFFSET_RATIO;
-                    if (moveY > 0) {
-                        mFootContent.setPadding(0, 0, 0, scrollY - mFootContentHeight);
-                        scrollTo(0, mTopPosition - (scrollY - mFootContentHeight - mLastY));
-                    }
-                    mLastY = scrollY;
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                mTouchTracker.onPointerDown(event);
+                if (mTouchHeld) {
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                mTouchTracker.onPointerUp(event);
+                if (mTouchHeld) {
+                    return true;
                 }
                 break;
             case MotionEvent.ACTION_UP:
-                if (mRecording) {
-                    mFootContent.setPadding(0, 0, 0, -mFootContentHeight);
+                mTouchTracker.onUp(event);
+                if (mTouchHeld) {
+                    mTouchHeld = false;
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mTouchTracker.onCancel();
+                if (mTouchHeld) {
+                    // The scroll view was canceled when the pull started
+                    mTouchHeld = false;
+                    return true;
                 }
-                mRecording = false;
                 break;
             default:
                 break;
@@ -224,6 +267,128 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
         return super.onTouchEvent(event);
     }
 
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        final boolean dispatched = super.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+        if (dispatched) {
+            mTouchTracker.onNestedScrollDispatched(consumed, offsetInWindow);
+        }
+        return dispatched;
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                                        int[] offsetInWindow) {
+        final boolean dispatched = super.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                offsetInWindow);
+        if (dispatched) {
+            // The pull waits while the parent takes the scroll
+            mTouchTracker.onNestedScrollDispatched(null, offsetInWindow);
+        }
+        return dispatched;
+    }
+
+    /**
+     * The pull owns the gesture, the scroll view must not scroll under the header/footer,
+     * so the moves are held back from it while pulling.<br>
+     * <p>The scroll view gets ACTION_CANCEL when the pull starts, and a new ACTION_DOWN when it ends.
+     *
+     * @param event
+     * @param pulling
+     * @return true if the event was consumed
+     */
+    private boolean holdTouch(MotionEvent event, boolean pulling) {
+        if (pulling == mTouchHeld) {
+            return pulling;
+        }
+        mTouchHeld = pulling;
+        if (pulling) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        final int action = event.getAction();
+        event.setAction(pulling ? MotionEvent.ACTION_CANCEL : MotionEvent.ACTION_DOWN);
+        super.onTouchEvent(event);
+        event.setAction(action);
+        return true;
+    }
+
+    private void updateScrollMetrics() {
+        if (getChildCount() > 0) {
+            mScrollMetrics.setScroll(getScrollY(), getHeight(), getChildAt(0).getMeasuredHeight());
+        }
+    }
+
+    @Override
+    public boolean canPull(int edge) {
+        if (edge == PullGestureEngine.EDGE_BOTTOM) {
+            return mEnableOverScroll && mScrollMetrics.isAtBottom();
+        }
+        return false;
+    }
+
+    @Override
+    public int getPullThreshold(int edge) {
+        return mFootContentHeight;
+    }
+
+    @Override
+    public void onPullChanged(int edge, int state, int lastState, int distance) {
+        if (edge != PullGestureEngine.EDGE_BOTTOM) {
+            return;
+        }
+        if (mEngine.isReleased() && distance > 0) {
+            // Spring back from the released position
+            mFooterSettler.start(distance, 0, mEngine.getReleasePullVelocity());
+        } else {
+            mFooterSettler.abort();
+            mPendingFootDistance = distance;
+            mFooterPending = true;
+        }
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Apply the latest pull offsets, called once per frame while pulling.
+     */
+    protected void onPullFrame() {
+        if (mFooterSettler.computeOffset()) {
+            mPendingFootDistance = mFooterSettler.getCurrent();
+            mFooterPending = true;
+            if (!mFooterSettler.isFinished()) {
+                mFrameScheduler.schedule();
+            }
+        }
+        if (!mFooterPending) {
+            return;
+        }
+        mFooterPending = false;
+        final int distance = mPendingFootDistance;
+        // The footer only stretches, it never loads.
+        if (distance > 0) {
+            mFootContent.setPadding(0, 0, 0, distance - mFootContentHeight);
+            scrollTo(0, mScrollMetrics.getScrollOffset() + distance - mLastFootDistance);
+        } else {
+            mFootContent.setPadding(0, 0, 0, -mFootContentHeight);
+        }
+        mLastFootDistance = distance;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // The results can't be shown any more
+        cancelLoad();
+        // Apply what is waiting for the frame now, the callback won't come after detached.
+        mFrameScheduler.cancel();
+        mFooterSettler.finish();
+        onPullFrame();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onPullRelease(int edge) {
+        return false;
+    }
+
     /**
      * Update header view by state
      */
@@ -253,8 +418,43 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
      * Refresh complete.
      */
     public void refreshCompleted() {
-        mState = IDEL;
+        mEngine.setState(IDEL);
+        mEngine.reset();
         mRefreshing = false;
+        mLoadSignal = null;
+    }
+
+    /**
+     * Refresh complete, callable from any thread.<br>
+     * <p>It is applied on the main thread, the completions posted before it is applied are applied once.
+     */
+    public void postRefreshCompleted() {
+        mCompletion.postRefreshCompleted();
+    }
+
+    /**
+     * Gets the cancellation signal of the refresh going on.<br>
+     * <p>Read it in {@link OnRefreshListener#onRefresh()},
+     * it is canceled if the scroll view is detached from the window before the refresh completed.
+     *
+     * @return null if not refreshing
+     */
+    public CancellationSignal getLoadSignal() {
+        return mLoadSignal;
+    }
+
+    /**
+     * Cancel the refresh going on, the scroll view goes back to idle.
+     */
+    public void cancelLoad() {
+        // The completion not applied yet is for this refresh
+        mCompletion.cancel();
+        final CancellationSignal signal = mLoadSignal;
+        if (null == signal) {
+            return;
+        }
+        refreshCompleted();
+        signal.cancel();
     }
 
     /**
@@ -276,6 +476,41 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
         this.mEnableOverScroll = enable;
     }
 
+    /**
+     * Sets the interpolator of the animation after released.<br>
+     * <p>The header animates to the loading position or to hidden with it, and the footer springs back,
+     * default is a {@link android.view.animation.DecelerateInterpolator}
+     *
+     * @param interpolator
+     */
+    public void setSettleInterpolator(Interpolator interpolator) {
+        this.mSettleInterpolator = interpolator;
+        mFooterSettler.setInterpolator(interpolator);
+    }
+
+    /**
+     * Sets whether a fast fling can refresh after a shorter pull.<br>
+     * <p>Released faster than 1000dp/s and pulled over half of the header height, it refreshes
+     * as if released over the header.<br>
+     * default is false
+     *
+     * @param enable
+     */
+    public void setFlingToLoad(boolean enable) {
+        mTouchTracker.setFlingToLoad(enable);
+    }
+
+    /**
+     * Sets the resistance of the pull.<br>
+     * <p>default is {@link PullResistance#TYPE_LINEAR} with {@link #OFFSET_RATIO}
+     *
+     * @param resistance
+     * @see PullResistance
+     */
+    public void setPullResistance(PullResistance resistance) {
+        mEngine.setResistance(resistance);
+    }
+
     /**
      * Sets Footer background color
      *
@@ -352,11 +587,50 @@ public abstract class BasePullScrollView extends ScrollView implements IPullView
      */
     private void init(Context context, AttributeSet attrs) {
 
+        mEngine = new PullGestureEngine(this);
+        mTouchTracker = new PullTouchTracker(this, mEngine);
+        mFooterSettler = new PullSettler(context);
+        mFrameScheduler = new PullFrameScheduler(this, new PullFrameScheduler.Callback() {
+            @Override
+            public void onFrame() {
+                onPullFrame();
+            }
+        });
+        mCompletion = new PullCompletion(new PullCompletion.Callback() {
+            @Override
+            public void onRefreshCompleted() {
+                refreshCompleted();
+            }
+
+            @Override
+            public void onLoadMoreCompleted(boolean canLoadMore) {
+                // No load more
+            }
+        });
+
         if(null != attrs) {
             final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PullView);
             if(a.hasValue(R.styleable.PullView_overScroll)) {
                 mEnableOverScroll = a.getBoolean(R.styleable.PullView_overScroll, false);
             }
+            if(a.hasValue(R.styleable.PullView_pullResistance) || a.hasValue(R.styleable.PullView_pullRatio)
+                    || a.hasValue(R.styleable.PullView_maxPullDistance)) {
+                final int type = a.getInt(R.styleable.PullView_pullResistance, PullResistance.TYPE_LINEAR);
+                // The linear pull has no limit unless it's set
+                final int maxDistance = type == PullResistance.TYPE_LINEAR ? 0
+                        : (int) (DEFAULT_MAX_PULL_DISTANCE * context.getResources().getDisplayMetrics().density);
+                setPullResistance(PullResistance.create(type,
+                        a.getFloat(R.styleable.PullView_pullRatio, OFFSET_RATIO),
+                        a.getDimensionPixelSize(R.styleable.PullView_maxPullDistance, maxDistance)));
+            }
+            if(a.hasValue(R.styleable.PullView_flingToLoad)) {
+                setFlingToLoad(a.getBoolean(R.styleable.PullView_flingToLoad, false));
+            }
+            if(a.hasValue(R.styleable.PullView_settleInterpolator)) {
+                mSettleInterpolator = AnimationUtils.loadInterpolator(context,
+                        a.getResourceId(R.styleable.PullView_settleInterpolator, 0));
+                mFooterSettler.setInterpolator(mSettleInterpolator);
+            }
             a.recycle();
         }
         mDownToUpAnimation = new RotateAnimation(0f, -180f, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import java.util.List;
+
+/**
+ * Usage The listener to receive the pages of a {@link com.opensource.pullview.paging.PagedSource}.<br>
+ * <p>Called on the main thread, merge the items into the adapter here,
+ * the widget completes the refresh or load more by itself after it.
+ *
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public interface OnPageLoadListener<Item> {
+
+    /**
+     * A page was loaded
+     *
+     * @param items   the items of the page
+     * @param refresh true if it's the first page, or the first of the cached pages shown while refreshing,
+     *                the items replace the old ones. The other cached pages follow it one by one.
+     */
+    public void onPageLoaded(List<Item> items, boolean refresh);
+
+    /**
+     * A page before the first one was loaded, the list keeps the first visible item where it is.
+     *
+     * @param items the items of the page, inserted before the old ones
+     */
+    public void onPreviousPageLoaded(List<Item> items);
+
+    /**
+     * Loading a page failed, called for every failed retry too
+     *
+     * @param error
+     * @param refresh true if it was a refresh
+     */
+    public void onLoadFailed(Throwable error, boolean refresh);
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Usage Takes the refresh and load more completions from any thread, and applies them on the main thread.<br>
+ * <p>The completions posted before they are applied are merged, and applied with one message:
+ * a refresh completes once, and a load more completes once with the last canLoadMore.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullCompletion {
+
+    private static final int REFRESH = 0x1;
+    private static final int LOAD_MORE = 0x2;
+    private static final int CAN_LOAD_MORE = 0x4;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Callback mCallback;
+
+    /**
+     * The completions waiting to be applied, no message is posted while it is 0
+     */
+    private final AtomicInteger mPending = new AtomicInteger(0);
+
+    private final Runnable mApplyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            apply();
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param callback
+     */
+    PullCompletion(Callback callback) {
+        this.mCallback = callback;
+    }
+
+    /**
+     * Post the refresh completion, from any thread
+     */
+    void postRefreshCompleted() {
+        post(REFRESH, 0);
+    }
+
+    /**
+     * Post the load more completion, from any thread
+     *
+     * @param canLoadMore
+     */
+    void postLoadMoreCompleted(boolean canLoadMore) {
+        if (canLoadMore) {
+            post(LOAD_MORE | CAN_LOAD_MORE, 0);
+        } else {
+            post(LOAD_MORE, CAN_LOAD_MORE);
+        }
+    }
+
+    /**
+     * Drop the completions not applied yet, they are for a load which is not going on any more.
+     * Called on the main thread.
+     */
+    void cancel() {
+        // Remove first, a completion posted in between is dropped too, and the next one posts again
+        mHandler.removeCallbacks(mApplyRunnable);
+        mPending.set(0);
+    }
+
+    private void post(int set, int clear) {
+        int pending;
+        do {
+            pending = mPending.get();
+        } while (!mPending.compareAndSet(pending, (pending | set) & ~clear));
+        if (pending == 0) {
+            // The first one since last applied, the others go with it
+            mHandler.post(mApplyRunnable);
+        }
+    }
+
+    private void apply() {
+        final int pending = mPending.getAndSet(0);
+        if ((pending & REFRESH) != 0) {
+            mCallback.onRefreshCompleted();
+        }
+        if ((pending & LOAD_MORE) != 0) {
+            mCallback.onLoadMoreCompleted((pending & CAN_LOAD_MORE) != 0);
+        }
+    }
+
+    /**
+     * Applies the completions, called on the main thread
+     */
+    interface Callback {
+
+        void onRefreshCompleted();
+
+        void onLoadMoreCompleted(boolean canLoadMore);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+import com.opensource.pullview.paging.ListDiff;
+import com.opensource.pullview.paging.PagedLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Usage An adapter which updates only the changed rows when a new list is submitted.<br>
+ * <p>{@link #submitList(List)} compares the new list with the old one by the stable ids on a background thread
+ * ({@link ListDiff}), then on the main thread: the rows of the unchanged items keep their views without binding
+ * them again, and the first visible item stays where it was on the screen, even if items were inserted above it.<br>
+ * <p>A {@link BasePullListView} attaches itself in {@link BasePullListView#setAdapter(android.widget.ListAdapter)},
+ * call {@link #setListView(ListView)} for other lists. The binding must not depend on the position,
+ * a row doesn't get bound again when only its position changed.
+ *
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public abstract class PullDiffAdapter<Item> extends BaseAdapter {
+
+    private final Executor mExecutor;
+
+    private List<Item> mItems = Collections.emptyList();
+    private ListView mListView;
+    /**
+     * Increased by every submit, a diff overtaken by a newer submit is dropped
+     */
+    private int mGeneration = 0;
+
+    /**
+     * Constructor, the diffs run on {@link PagedLoader#getDefaultExecutor()}
+     */
+    public PullDiffAdapter() {
+        this(PagedLoader.getDefaultExecutor());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param executor runs the diffs
+     */
+    public PullDiffAdapter(Executor executor) {
+        if (null == executor) {
+            throw new IllegalArgumentException("executor can not be null");
+        }
+        this.mExecutor = executor;
+    }
+
+    /**
+     * Gets the stable id of an item, the same item in the old and the new list has the same id.
+     *
+     * @param item
+     * @return
+     */
+    public abstract long getStableId(Item item);
+
+    /**
+     * Bind the item to the row
+     *
+     * @param item
+     * @param convertView the old row to reuse, can be null
+     * @param parent
+     * @return the row
+     */
+    protected abstract View bindView(Item item, View convertView, ViewGroup parent);
+
+    /**
+     * Whether the same item shows the same in the old and the new list, called on the background thread.
+     *
+     * @param oldItem
+     * @param newItem
+     * @return equals() by default
+     */
+    protected boolean areContentsTheSame(Item oldItem, Item newItem) {
+        return oldItem == newItem || (null != oldItem && oldItem.equals(newItem));
+    }
+
+    /**
+     * Sets the list to keep the first visible item of
+     *
+     * @param listView null to not keep it
+     */
+    public void setListView(ListView listView) {
+        this.mListView = listView;
+    }
+
+    /**
+     * Submit a new list, call it on the main thread.<br>
+     * <p>The adapter shows the old list until the difference is computed.
+     *
+     * @param items
+     */
+    public void submitList(List<Item> items) {
+        final List<Item> oldItems = mItems;
+        final List<Item> newItems = null == items ? Collections.<Item>emptyList() : new ArrayList<Item>(items);
+        final int generation = ++mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ListDiff diff = ListDiff.compute(new ListDiff.Callback() {
+                    @Override
+                    public int getOldSize() {
+                        return oldItems.size();
+                    }
+
+                    @Override
+                    public int getNewSize() {
+                        return newItems.size();
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                        return getStableId(oldItems.get(oldPosition)) == getStableId(newItems.get(newPosition));
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                        return PullDiffAdapter.this.areContentsTheSame(oldItems.get(oldPosition),
+                                newItems.get(newPosition));
+                    }
+                });
+                PullMainThreadExecutor.getInstance().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            apply(newItems, diff);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Gets the items shown
+     *
+     * @return
+     */
+    public List<Item> getItems() {
+        return Collections.unmodifiableList(mItems);
+    }
+
+    private void apply(List<Item> newItems, ListDiff diff) {
+        // Find the first visible item which is still there, and where it is
+        int anchorPosition = -1;
+        int anchorOldPosition = -1;
+        int anchorTop = 0;
+        final ListView listView = mListView;
+        if (null != listView && listView.getAdapter() != null && listView.getChildCount() > 0) {
+            final int headers = listView.getHeaderViewsCount();
+            final int first = listView.getFirstVisiblePosition();
+            for (int i = 0; i < listView.getChildCount(); i++) {
+                final int oldPosition = first + i - headers;
+                if (oldPosition < 0) {
+                    continue;
+                }
+                if (oldPosition >= mItems.size()) {
+                    break;
+                }
+                final int newPosition = diff.getNewPosition(oldPosition);
+                if (newPosition >= 0) {
+                    anchorPosition = newPosition + headers;
+                    anchorOldPosition = oldPosition + headers;
+                    anchorTop = listView.getChildAt(i).getTop() - listView.getPaddingTop();
+                    break;
+                }
+            }
+        }
+
+        // The unchanged rows keep the old item, so their views are not bound again
+        final List<Item> items = new ArrayList<Item>(newItems.size());
+        for (int i = 0; i < newItems.size(); i++) {
+            final int oldPosition = diff.getOldPosition(i);
+            items.add(oldPosition >= 0 && !diff.isChanged(i) ? mItems.get(oldPosition) : newItems.get(i));
+        }
+        mItems = items;
+        notifyDataSetChanged();
+        if (anchorPosition != anchorOldPosition) {
+            // Items were inserted or removed above it
+            listView.setSelectionFromTop(anchorPosition, anchorTop);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return mItems.size();
+    }
+
+    @Override
+    public Item getItem(int position) {
+        return mItems.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getStableId(mItems.get(position));
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public final View getView(int position, View convertView, ViewGroup parent) {
+        final Item item = mItems.get(position);
+        if (null != convertView && convertView.getTag(R.id.pullview_diff_item) == item) {
+            // Bound to this item already
+            return convertView;
+        }
+        final View view = bindView(item, convertView, parent);
+        view.setTag(R.id.pullview_diff_item, item);
+        return view;
+    }
+}
@@ -20,64 +20,62 @@ package com.opensource.pullview;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
 import android.view.animation.RotateAnimation;
 import android.widget.AbsListView;
 import android.widget.ExpandableListView;
 
+import com.opensource.pullview.paging.PagedLoader;
+import com.opensource.pullview.paging.PagedSource;
 import com.opensource.pullview.utils.DateUtil;
 
+import java.util.concurrent.Executor;
+
 /**
  * Pull to refresh ExpandableListView
  * Created by yinglovezhuzhu@gmail.com on 2015/10/8.
  */
-public class PullExpandableListView extends ExpandableListView implements IPullView, AbsListView.OnScrollListener {
+public class PullExpandableListView extends ExpandableListView implements IPullView, AbsListView.OnScrollListener,
+        PullGestureEngine.Callback {
 
     private RotateAnimation mDownToUpAnimation;
     private RotateAnimation mUpToDownAnimation;
 
     private PullHeaderView mHeaderView;
-    private PullFooterView mFooterView;
 
     private String mLastRefreshTime = "";
     private int mHeaderLabelVisibility = View.VISIBLE;
 
-    private int mFirstItemIndex;
-    private int mVisibleItemCount;
-    private int mTotalItemCount;
-
-    private int mVerticalScrollOffset = 0;
-    private int mVerticalScrollExtent = 0;
-    private int mVerticalScrollRange = 0;
+    private final PullScrollMetrics mScrollMetrics = new PullScrollMetrics();
+    private final LoadMoreTrigger mLoadMoreTrigger = new LoadMoreTrigger();
 
     /**
      * Whether it can refresh.
      */
     private boolean mEnablePullRefresh = false;
     /**
-     * Whether it can load more data.
-     */
-    private boolean mEnableLoadMore = false;
-    /**
-     * Is refreshing data
+     * Refreshes, loads more and loads previous, shows it on the footer
      */
-    private boolean mRefreshing = false;
+    private PullLoadController mLoad;
     /**
      * Can be over scroll *
      */
-    private boolean mEnableOverScroll = true;
+    private boolean mEnableOverScroll = false;
 
     private LoadMode mLoadMode = LoadMode.AUTO_LOAD;
+    /**
+     * Move the content by drawing offset while pulling, the padding is only changed on release.
+     */
+    private boolean mTranslatePull = false;
 
-    private int mState = IDEL;
-
-    private OnRefreshListener mRefreshListener;
-    private OnLoadMoreListener mLoadMoreListener;
     private OnScrollListener mScrollListener;
 
     public PullExpandableListView(Context context) {
@@ -103,12 +101,10 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
 
     @Override
     public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
-        mFirstItemIndex = firstVisibleItem;
-        mVisibleItemCount = visibleItemCount;
-        mTotalItemCount = totalItemCount;
-        mVerticalScrollOffset = computeVerticalScrollOffset();
-        mVerticalScrollExtent = computeVerticalScrollExtent();
-        mVerticalScrollRange = computeVerticalScrollRange();
+        mScrollMetrics.setItems(firstVisibleItem, visibleItemCount, totalItemCount);
+        // Computed when the pull or the load more trigger needs them, not on every scroll.
+        mScrollMetrics.invalidateScroll();
+        mLoad.onScroll(mLoadMode);
 
         if (null != mScrollListener) {
             mScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
@@ -117,195 +113,93 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
 
     @Override
     public void onScrollStateChanged(AbsListView view, int scrollState) {
-        if (scrollState == SCROLL_STATE_IDLE
-                && mVerticalScrollRange == mVerticalScrollOffset + mVerticalScrollExtent
-                && mState == IDEL) {
-            if (mEnableLoadMore && mLoadMode == LoadMode.AUTO_LOAD) {
-                setSelection(mTotalItemCount);
-                loadMore();
-                mState = LOADING;
-                updateFooterViewByState(0);
-            }
+        if (scrollState == SCROLL_STATE_IDLE) {
+            mLoad.onScrollIdle(mLoadMode);
         }
         if (null != mScrollListener) {
             mScrollListener.onScrollStateChanged(view, scrollState);
         }
     }
 
-    private int mStartY;
-    private boolean mRecording = false;
+    private PullGestureEngine mEngine;
+
+    private PullTouchTracker mTouchTracker;
+
+    private PullFrameScheduler mFrameScheduler;
+
     private boolean mIsBack = false;
 
+    private boolean mHeaderPending = false;
+    private int mPendingHeaderPadding = 0;
+    /**
+     * The state the header views show, setting their texts lays out the list again
+     */
+    private int mHeaderViewState = -1;
+    private PullSettler mHeaderSettler;
+
+    /**
+     * The drawing offset of the content in translate mode
+     */
+    private int mPullOffset = 0;
+    /**
+     * The touch events are held back from the list while pulling
+     */
+    private boolean mTouchHeld = false;
+
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        if (mTouchTracker.onInterceptTouchEvent(event)) {
+            // The pull owns the gesture now, the children get ACTION_CANCEL
+            mTouchHeld = true;
+            getParent().requestDisallowInterceptTouchEvent(true);
+            return true;
+        }
+        return super.onInterceptTouchEvent(event);
+    }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
+        switch (PullTouchTracker.getActionMasked(event)) {
             case MotionEvent.ACTION_DOWN:
-                mStartY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mVerticalScrollRange == mVerticalScrollOffset + mVerticalScrollExtent;
-                }
+                mTouchTracker.onDown(event);
                 break;
             case MotionEvent.ACTION_MOVE:
-                int tempY = (int) event.getY();
-                int moveY = tempY - mStartY;
-                if (mVerticalScrollOffset <= 0 || mFirstItemIndex == 0) {
-                    if (!mRecording) {
-                        mRecording = true;
-                        mStartY = tempY;
-                    }
-                    int scrollY = moveY / OFFSET_RATIO;
-
-                    if (mState != LOADING && (mEnablePullRefresh || mEnableOverScroll)) {
-                        // Ensure that the process of setting padding, current position has always been at the header,
-                        // or if when the list exceeds the screen, then, when the push, the list will scroll at the same time
-                        switch (mState) {
-                            case RELEASE_TO_LOAD: // Release to load data
-                                if(mFirstItemIndex + mVisibleItemCount < mTotalItemCount) {
-                                    setSelection(mFirstItemIndex);
-                                }
-                                // Slide up, header part was covered, but not all be covered(Pull up to cancel)
-                                if (moveY > 0 && (scrollY < mHeaderView.mViewHeight)) {
-                                    mState = PULL_TO_LOAD;
-                                } else if (moveY <= 0 && mFirstItemIndex == 0) {
-                                    // Slide to the top
-                                    mState = IDEL;
-                                }
-                                updateHeaderViewByState(scrollY - mHeaderView.mViewHeight);
-                                break;
-                            case PULL_TO_LOAD:
-                                if(mFirstItemIndex + mVisibleItemCount < mTotalItemCount) {
-                                    setSelection(mFirstItemIndex);
-                                }
-                                // Pull down to the state can enter RELEASE_TO_REFRESH
-                                if (scrollY >= mHeaderView.mViewHeight) {
-                                    mState = RELEASE_TO_LOAD;
-                                    mIsBack = true;
-                                } else if (moveY <= 0 && mFirstItemIndex == 0) {
-                                    mState = IDEL;
-                                }
-                                updateHeaderViewByState(scrollY - mHeaderView.mViewHeight);
-                                break;
-                            case IDEL:
-                                if (moveY > 0 && mFirstItemIndex == 0) {
-                                    mState = PULL_TO_LOAD;
-                                }
-                                updateHeaderViewByState(-mHeaderView.mViewHeight);
-                                break;
-                            default:
-                                break;
-                        }
-                    }
-                } else if (mVerticalScrollRange > mVerticalScrollExtent && mFirstItemIndex + mVisibleItemCount == mTotalItemCount) {
-                    if (!mRecording) {
-                        mRecording = true;
-                        mStartY = tempY;
-                    }
-                    int scrollY = Math.abs(moveY) / OFFSET_RATIO;
-                    if (mState != LOADING
-                            && (mLoadMode == LoadMode.PULL_TO_LOAD && (mEnableLoadMore || mEnableOverScroll)
-                            || mLoadMode == LoadMode.AUTO_LOAD && !mEnableLoadMore && mEnableOverScroll)) {
-                        //可以向上pull的条件是
-                        //1.mState != LOADING，即非LOADING状态下
-                        //2.mLoadMode == LoadMode.PULL_TO_LOAD时有更多数据可加载或者可以过度滑动（OverScroll）
-                        // 或者mLoadMode == LoadMode.AUTO_LOAD时没有更多数据可加载但可以过度滑动（OverScroll）
-
-                        // Ensure that the process of setting padding, current position has always been at the footer,
-                        // or if when the list exceeds the screen, then, when the push up, the list will scroll at the same time
-                        switch (mState) {
-                            case RELEASE_TO_LOAD: // release-to-load
-                                if(mFirstItemIndex > 0) {
-                                    setSelection(mTotalItemCount);
-                                }
-                                // Slide down, header part was covered, but not all be covered(Pull down to cancel)
-                                if (moveY < 0 && scrollY <= mFooterView.mViewHeight) {
-                                    mState = PULL_TO_LOAD;
-                                } else if (moveY >= 0 && mFirstItemIndex > 0) { //Slide up(Pull up to make footer to show)
-                                    mState = IDEL;
-                                }
-                                updateFooterViewByState(scrollY - mFooterView.mViewHeight);
-                                break;
-                            case PULL_TO_LOAD:
-                                if(mFirstItemIndex > 0) {
-                                    setSelection(mTotalItemCount);
-                                }
-                                // Pull up to the state can enter RELEASE_TO_REFRESH
-                                if (scrollY > mFooterView.mViewHeight) {
-                                    mState = RELEASE_TO_LOAD;
-                                    mIsBack = true;
-                                } else if (moveY >= 0) {
-                                    mState = IDEL;
-                                }
-                                updateFooterViewByState(scrollY - mFooterView.mViewHeight);
-                                break;
-                            case IDEL:
-                                if (moveY < 0) {
-                                    mState = PULL_TO_LOAD;
-                                }
-                                updateFooterViewByState(-mFooterView.mViewHeight);
-                                break;
-                            default:
-                                break;
-                        }
-                    }
+                final boolean pulling = mTouchTracker.onMove(event);
+                if (holdTouch(event, pulling)) {
+                    return true;
                 }
                 break;
-            case MotionEvent.ACTION_UP:
-                mStartY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mVerticalScrollRange == mVerticalScrollOffset + mVerticalScrollExtent;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                mTouchTracker.onPointerDown(event);
+                if (mTouchHeld) {
+                    return true;
                 }
-                if (mVerticalScrollOffset <= 0 || mFirstItemIndex == 0) {
-                    switch (mState) {
-                        case IDEL:
-                            //Do nothing.
-                            break;
-                        case PULL_TO_LOAD:
-                            //Pull to refresh.
-                            mState = IDEL;
-                            updateHeaderViewByState(-mHeaderView.mViewHeight);
-                            break;
-                        case RELEASE_TO_LOAD:
-                            if (mEnablePullRefresh) {
-                                //Release to refresh.
-                                refresh();
-                                mState = LOADING;
-                                updateHeaderViewByState(0);
-                            } else {
-                                mState = IDEL;
-                                updateHeaderViewByState(-mHeaderView.mViewHeight);
-                            }
-                            break;
-                        default:
-                            break;
-                    }
-                } else if (mFirstItemIndex + mVisibleItemCount >= mTotalItemCount) {
-                    switch (mState) {
-                        case IDEL:
-                            //Do nothing.
-                            break;
-                        case PULL_TO_LOAD:
-                            //Pull to load more data.
-                            mState = IDEL;
-                            updateFooterViewByState(-mFooterView.mViewHeight);
-                            break;
-                        case RELEASE_TO_LOAD:
-                            if (mEnableLoadMore) {
-                                //Release to load more data.
-                                loadMore();
-                                mState = LOADING;
-                                updateFooterViewByState(0);
-                            } else {
-                                mState = IDEL;
-                                updateFooterViewByState(-mFooterView.mViewHeight);
-                            }
-                            break;
-                        default:
-                            break;
-                    }
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                mTouchTracker.onPointerUp(event);
+                if (mTouchHeld) {
+                    return true;
                 }
-                mRecording = false;
+                break;
+            case MotionEvent.ACTION_UP:
+                mTouchTracker.onUp(event);
                 mIsBack = false;
+                mLoad.onTouchEnded();
+                if (mTouchHeld) {
+                    mTouchHeld = false;
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mTouchTracker.onCancel();
+                mIsBack = false;
+                mLoad.onTouchEnded();
+                if (mTouchHeld) {
+                    // The list was canceled when the pull started
+                    mTouchHeld = false;
+                    return true;
+                }
                 break;
             default:
                 break;
@@ -313,6 +207,213 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
         return super.onTouchEvent(event);
     }
 
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        final boolean dispatched = super.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+        if (dispatched) {
+            mTouchTracker.onNestedScrollDispatched(consumed, offsetInWindow);
+        }
+        return dispatched;
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                                        int[] offsetInWindow) {
+        final boolean dispatched = super.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                offsetInWindow);
+        if (dispatched) {
+            // The pull waits while the parent takes the scroll
+            mTouchTracker.onNestedScrollDispatched(null, offsetInWindow);
+        }
+        return dispatched;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mPullOffset == 0) {
+            super.dispatchDraw(canvas);
+            return;
+        }
+        final int saveCount = canvas.save();
+        canvas.translate(0, mPullOffset);
+        super.dispatchDraw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * The pull owns the gesture, the list must not scroll under the header/footer,
+     * so the moves are held back from the list while pulling.<br>
+     * <p>The list gets ACTION_CANCEL when the pull starts, and a new ACTION_DOWN when it ends.
+     *
+     * @param event
+     * @param pulling
+     * @return true if the event was consumed
+     */
+    private boolean holdTouch(MotionEvent event, boolean pulling) {
+        if (pulling == mTouchHeld) {
+            return pulling;
+        }
+        mTouchHeld = pulling;
+        if (pulling) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        final int action = event.getAction();
+        event.setAction(pulling ? MotionEvent.ACTION_CANCEL : MotionEvent.ACTION_DOWN);
+        super.onTouchEvent(event);
+        event.setAction(action);
+        return true;
+    }
+
+    /**
+     * Sets the drawing offset of the content
+     *
+     * @param offset positive moves the content down
+     */
+    private void setPullOffset(int offset) {
+        if (mPullOffset != offset) {
+            mPullOffset = offset;
+            invalidate();
+        }
+    }
+
+    @Override
+    public boolean canPull(int edge) {
+        switch (edge) {
+            case PullGestureEngine.EDGE_TOP:
+                return mScrollMetrics.isAtTop() && (mEnablePullRefresh || mEnableOverScroll);
+            case PullGestureEngine.EDGE_BOTTOM:
+                return mLoad.canPull(mLoadMode, mEnableOverScroll);
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public int getPullThreshold(int edge) {
+        return edge == PullGestureEngine.EDGE_TOP ? mHeaderView.mViewHeight : mLoad.getFooterHeight();
+    }
+
+    @Override
+    public void onPullChanged(int edge, int state, int lastState, int distance) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            mLoad.onPullChanged(state, lastState, distance);
+            return;
+        }
+        switch (state) {
+            case RELEASE_TO_LOAD:
+            case PULL_TO_LOAD:
+                if (state == RELEASE_TO_LOAD && lastState == PULL_TO_LOAD) {
+                    mIsBack = true;
+                }
+                postHeaderUpdate(distance - mHeaderView.mViewHeight);
+                break;
+            case LOADING:
+                if (lastState != LOADING) {
+                    settleHeader(distance, 0);
+                }
+                break;
+            case IDEL:
+                settleHeader(distance, -mHeaderView.mViewHeight);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Apply the latest pull offsets, called once per frame while pulling.
+     */
+    private void onPullFrame() {
+        mLoad.onPullFrame();
+        if (mHeaderSettler.computeOffset()) {
+            final int padding = mHeaderSettler.getCurrent();
+            if (mHeaderSettler.isFinished()) {
+                setPullOffset(0);
+                mHeaderView.setPadding(0, padding, 0, 0);
+            } else {
+                if (mTranslatePull) {
+                    setPullOffset(padding + mHeaderView.mViewHeight);
+                } else {
+                    mHeaderView.setPadding(0, padding, 0, 0);
+                }
+                mFrameScheduler.schedule();
+            }
+        }
+        if (mHeaderPending) {
+            final int state = mEngine.getState();
+            final boolean pulling = state == PULL_TO_LOAD || state == RELEASE_TO_LOAD;
+            if (pulling && mTranslatePull) {
+                // Keep the layout, move the content down to show the header
+                setPullOffset(mPendingHeaderPadding + mHeaderView.mViewHeight);
+                if (state != mHeaderViewState) {
+                    updateHeaderViewByState(-mHeaderView.mViewHeight);
+                } else {
+                    mHeaderPending = false;
+                }
+                return;
+            }
+            // The list doesn't scroll while pulling, the header stays at the top by itself.
+            setPullOffset(0);
+            updateHeaderViewByState(mPendingHeaderPadding);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // The results can't be shown any more
+        mLoad.onDetached();
+        // Apply what is waiting for the frame now, the callback won't come after detached.
+        mFrameScheduler.cancel();
+        mHeaderSettler.finish();
+        onPullFrame();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Update the header to the state, and animate the padding from the released position.
+     *
+     * @param distance   the pull distance
+     * @param paddingTop the padding to settle to
+     */
+    private void settleHeader(int distance, int paddingTop) {
+        if (!mEngine.isReleased() || distance <= 0) {
+            postHeaderUpdate(paddingTop);
+            return;
+        }
+        final int from = distance - mHeaderView.mViewHeight;
+        // The state views change now, the padding(the offset in translate mode) is animated.
+        updateHeaderViewByState(mTranslatePull ? -mHeaderView.mViewHeight : from);
+        mHeaderSettler.start(from, paddingTop, mEngine.getReleasePullVelocity());
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Keep the header padding and update the header on the next frame
+     *
+     * @param paddingTop
+     */
+    private void postHeaderUpdate(int paddingTop) {
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
+        mPendingHeaderPadding = paddingTop;
+        mHeaderPending = true;
+        mFrameScheduler.schedule();
+    }
+
+    @Override
+    public boolean onPullRelease(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            if (mEnablePullRefresh) {
+                //Release to refresh.
+                refresh();
+                return true;
+            }
+            return false;
+        }
+        return mLoad.onPullRelease();
+    }
+
     @Override
     public void setOnScrollListener(OnScrollListener l) {
         this.mScrollListener = l;
@@ -325,7 +426,11 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @param text
      */
     public void onHeadLoading(CharSequence text) {
-        mState = LOADING;
+        mEngine.setState(LOADING);
+        mHeaderPending = false;
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
         mHeaderView.setPadding(0, 0, 0, 0);
         mHeaderView.setArrowVisibility(View.GONE);
         mHeaderView.setProgressVisibility(View.VISIBLE);
@@ -333,6 +438,7 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
         mHeaderView.setLabelVisibility(View.GONE);
         mHeaderView.startArrowAnimation(null);
         mHeaderView.setTitleText(text);
+        mHeaderViewState = LOADING;
         mHeaderView.setVisibility(View.VISIBLE);
     }
 
@@ -343,7 +449,11 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @param resId
      */
     public void onHeadLoading(int resId) {
-        mState = LOADING;
+        mEngine.setState(LOADING);
+        mHeaderPending = false;
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
         mHeaderView.setPadding(0, 0, 0, 0);
         mHeaderView.setArrowVisibility(View.GONE);
         mHeaderView.setProgressVisibility(View.VISIBLE);
@@ -351,6 +461,7 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
         mHeaderView.setLabelVisibility(View.GONE);
         mHeaderView.startArrowAnimation(null);
         mHeaderView.setTitleText(resId);
+        mHeaderViewState = LOADING;
         mHeaderView.setVisibility(View.VISIBLE);
     }
 
@@ -361,14 +472,7 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @param text
      */
     public void onFootLoading(CharSequence text) {
-        mState = LOADING;
-        mFooterView.setPadding(0, 0, 0, 0);
-        mFooterView.setArrowVisibility(View.GONE);
-        mFooterView.setProgressVisibility(View.VISIBLE);
-        mFooterView.setTitileVisibility(View.VISIBLE);
-        mFooterView.startArrowAnimation(null);
-        mFooterView.setTitleText(text);
-        mFooterView.setVisibility(View.VISIBLE);
+        mLoad.showFooterLoading(text);
     }
 
     /**
@@ -378,14 +482,7 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @param resId
      */
     public void onFootLoading(int resId) {
-        mState = LOADING;
-        mFooterView.setPadding(0, 0, 0, 0);
-        mFooterView.setArrowVisibility(View.GONE);
-        mFooterView.setProgressVisibility(View.VISIBLE);
-        mFooterView.setTitileVisibility(View.VISIBLE);
-        mFooterView.startArrowAnimation(null);
-        mFooterView.setTitleText(resId);
-        mFooterView.setVisibility(View.VISIBLE);
+        mLoad.showFooterLoading(resId);
     }
 
     /**
@@ -417,67 +514,138 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
     }
 
     /**
-     * Update footer view by state
+     * Refresh data complete
+     */
+    public void refreshCompleted() {
+        mLoad.refreshCompleted();
+        mIsBack = false;
+        mLastRefreshTime = DateUtil.getSystemDate(getResources().getString(R.string.pull_view_date_format));
+        updateHeaderViewByState(-mHeaderView.mViewHeight);
+    }
+
+    /**
+     * Refresh data complete, ignored if the list was refreshed again after the refresh.
      *
-     * @param paddingBottom
+     * @param generation the load generation when the refresh started, see {@link #getLoadGeneration()}
+     * @return false if ignored
      */
-    private void updateFooterViewByState(int paddingBottom) {
-        switch (mState) {
-            case RELEASE_TO_LOAD:
-                mFooterView.setArrowVisibility(View.VISIBLE);
-                mFooterView.setProgressVisibility(View.GONE);
-                mFooterView.startArrowAnimation(mDownToUpAnimation);
-                mFooterView.setTitleText(R.string.pull_view_release_to_load);
-                break;
-            case PULL_TO_LOAD:
-                mFooterView.setArrowVisibility(View.VISIBLE);
-                mFooterView.setProgressVisibility(View.GONE);
+    public boolean refreshCompleted(int generation) {
+        return mLoad.refreshCompleted(generation);
+    }
 
-                if (mIsBack) {
-                    mIsBack = false;
-                    mFooterView.startArrowAnimation(mUpToDownAnimation);
-                }
-                mFooterView.setTitleText(R.string.pull_view_pull_to_load);
-                break;
-            case LOADING:
-                mFooterView.setArrowVisibility(View.GONE);
-                mFooterView.setProgressVisibility(View.VISIBLE);
-                mFooterView.startArrowAnimation(null);
-                mFooterView.setTitleText(R.string.pull_view_loading);
-                break;
-            case IDEL:
-                mFooterView.setProgressVisibility(View.GONE);
-                mFooterView.startArrowAnimation(null);
-                mFooterView.setTitleText(R.string.pull_view_pull_to_load);
-                break;
-            default:
-                break;
-        }
-        mFooterView.setVisibility(mEnableLoadMore ? View.VISIBLE : View.INVISIBLE);
-        mFooterView.setPadding(0, 0, 0, paddingBottom);
+    /**
+     * Load more complete, ignored if the list was refreshed after the load started.
+     *
+     * @param generation  the load generation when the load started, see {@link #getLoadGeneration()}
+     * @param canLoadmore
+     * @return false if ignored
+     */
+    public boolean loadMoreCompleted(int generation, boolean canLoadmore) {
+        return mLoad.loadMoreCompleted(generation, canLoadmore);
     }
 
     /**
-     * Refresh data complete
+     * Gets the load generation, increased by every refresh(and its retries), and when a load is canceled or timed out.<br>
+     * <p>Read it in {@link OnRefreshListener#onRefresh()} or {@link OnLoadMoreListener#onLoadMore()}
+     * and pass it to {@link #refreshCompleted(int)} or {@link #loadMoreCompleted(int, boolean)},
+     * so a load finished after a newer refresh doesn't complete it.
+     *
+     * @return
      */
-    public void refreshCompleted() {
-        mState = IDEL;
-        mRefreshing = false;
-        mRecording = false;mRecording = false;
-        mIsBack = false;
-        mLastRefreshTime = DateUtil.getSystemDate(getResources().getString(R.string.pull_view_date_format));
-        updateHeaderViewByState(-mHeaderView.mViewHeight);
+    public int getLoadGeneration() {
+        return mLoad.getLoadGeneration();
+    }
+
+    /**
+     * Gets the cancellation signal of the refresh or load more going on.<br>
+     * <p>Read it in {@link OnRefreshListener#onRefresh()} or {@link OnLoadMoreListener#onLoadMore()},
+     * it is canceled if the list is detached from the window before the load completed.
+     *
+     * @return null if nothing is loading
+     */
+    public CancellationSignal getLoadSignal() {
+        return mLoad.getLoadSignal();
+    }
+
+    /**
+     * Cancel the refresh or load more going on, the list goes back to idle.<br>
+     * <p>The completion of the load with its generation is ignored, see {@link #getLoadGeneration()}.
+     */
+    public void cancelLoad() {
+        mLoad.cancelLoad();
+    }
+
+    /**
+     * Tell the refresh or load more going on failed.<br>
+     * <p>It is retried later as the {@link RetryPolicy} says, the list keeps loading until then.
+     * When given up, a refresh completes, and a load more shows the error on the footer, tap it to load again.
+     */
+    public void loadFailed() {
+        mLoad.loadFailed();
+    }
+
+    /**
+     * Tell the load failed, ignored if the list was refreshed after the load started.
+     *
+     * @param generation the load generation when the load started, see {@link #getLoadGeneration()}
+     * @return false if ignored
+     */
+    public boolean loadFailed(int generation) {
+        return mLoad.loadFailed(generation);
+    }
+
+    /**
+     * Sets the timeout of a refresh or load more, the load is canceled and failed if not completed in time.
+     *
+     * @param timeout milliseconds, 0 to wait forever(default)
+     */
+    public void setLoadTimeout(long timeout) {
+        mLoad.setLoadTimeout(timeout);
+    }
+
+    /**
+     * Sets how a failed refresh, load more or load previous is retried, see {@link #loadFailed()}
+     * and {@link #loadPreviousFailed()}.
+     *
+     * @param policy null to never retry, a default {@link RetryPolicy} is used if not set
+     */
+    public void setRetryPolicy(RetryPolicy policy) {
+        mLoad.setRetryPolicy(policy);
     }
 
     /**
      * Load more complete
      */
     public void loadMoreCompleted(boolean canLoadmore) {
-        mState = IDEL;
-        mRefreshing = false;
-        mRecording = false;
-        this.mEnableLoadMore = null != mLoadMoreListener && canLoadmore;
-        updateFooterViewByState(-mFooterView.mViewHeight);
+        mLoad.loadMoreCompleted(canLoadmore);
+    }
+
+    /**
+     * Load the first page of a list which shows nothing yet, the footer shows loading instead of the header.<br>
+     * <p>It's a refresh: it goes to the {@link OnRefreshListener}(the loader of {@link #setPagedSource}) with
+     * a {@link CancellationSignal}, times out and retries like one. When given up, the footer shows the error,
+     * tap it to load the first page again.
+     */
+    public void loadFirstPage() {
+        mLoad.loadFirstPage();
+    }
+
+    /**
+     * Refresh data complete, callable from any thread.<br>
+     * <p>It is applied on the main thread, together with the other completions posted before it is applied,
+     * so a loader completing on a background thread doesn't need a Handler.
+     */
+    public void postRefreshCompleted() {
+        mLoad.postRefreshCompleted();
+    }
+
+    /**
+     * Load more complete, callable from any thread, see {@link #postRefreshCompleted()}.
+     *
+     * @param canLoadmore the last one posted wins
+     */
+    public void postLoadMoreCompleted(boolean canLoadmore) {
+        mLoad.postLoadMoreCompleted(canLoadmore);
     }
 
     /**
@@ -486,7 +654,7 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @param listener
      */
     public void setOnRefreshListener(OnRefreshListener listener) {
-        this.mRefreshListener = listener;
+        mLoad.setOnRefreshListener(listener);
         mEnablePullRefresh = null != listener;
     }
 
@@ -496,8 +664,115 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @param listener
      */
     public void setOnLoadMoreListener(OnLoadMoreListener listener) {
-        this.mLoadMoreListener = listener;
-        mEnableLoadMore = null != listener;
+        mLoad.setOnLoadMoreListener(listener);
+    }
+
+    /**
+     * Sets listener to listen load previous action, called when the list gets close to the top,
+     * see {@link #setPreviousPrefetchItems(int)}.
+     *
+     * @param listener
+     */
+    public void setOnLoadPreviousListener(OnLoadPreviousListener listener) {
+        mLoad.setOnLoadPreviousListener(listener);
+    }
+
+    /**
+     * Load previous complete, call it right after the groups were inserted into the adapter and notified,
+     * before the list is laid out again.<br>
+     * <p>The first visible row is moved down by the inserted rows, so it stays where it is on the screen.
+     *
+     * @param count           the rows inserted before the old ones, the inserted groups are collapsed
+     * @param canLoadPrevious there is a page before the inserted one
+     */
+    public void loadPreviousCompleted(int count, boolean canLoadPrevious) {
+        mLoad.loadPreviousCompleted(count, canLoadPrevious);
+    }
+
+    /**
+     * Load previous complete, ignored if the list was refreshed after the load started.<br>
+     * <p>A refresh, {@link #cancelLoad()} and a timeout cancel the load previous, it starts again when the list scrolls.
+     *
+     * @param generation      the load generation when the load started, see {@link #getLoadGeneration()}
+     * @param count           the rows inserted before the old ones, see {@link #loadPreviousCompleted(int, boolean)}
+     * @param canLoadPrevious
+     * @return false if ignored
+     */
+    public boolean loadPreviousCompleted(int generation, int count, boolean canLoadPrevious) {
+        return mLoad.loadPreviousCompleted(generation, count, canLoadPrevious);
+    }
+
+    /**
+     * Tell the load previous going on failed.<br>
+     * <p>It is retried later as the {@link RetryPolicy} says, the list doesn't load previous until then.
+     * When given up, it's loaded again when the list scrolls to the top after the scroll stops.
+     */
+    public void loadPreviousFailed() {
+        mLoad.loadPreviousFailed();
+    }
+
+    /**
+     * Tell the load previous failed, ignored if the list was refreshed after the load started.
+     *
+     * @param generation the load generation when the load started, see {@link #getLoadGeneration()}
+     * @return false if ignored
+     */
+    public boolean loadPreviousFailed(int generation) {
+        return mLoad.loadPreviousFailed(generation);
+    }
+
+    /**
+     * Gets the cancellation signal of the load previous going on, read it in
+     * {@link OnLoadPreviousListener#onLoadPrevious()}.
+     *
+     * @return null if not loading previous
+     */
+    public CancellationSignal getLoadPreviousSignal() {
+        return mLoad.getLoadPreviousSignal();
+    }
+
+    /**
+     * Can load previous or not
+     * @return
+     */
+    public boolean canLoadPrevious() {
+        return mLoad.canLoadPrevious();
+    }
+
+    /**
+     * Sets the source of the pages, the list refreshes and loads more from it by itself.<br>
+     * <p>The pages are loaded on a background thread shared by all the lists and delivered to the listener
+     * on the main thread, {@link #refreshCompleted()} and {@link #loadMoreCompleted(boolean)} are called after it.<br>
+     * <p>Replaces the {@link OnRefreshListener}, the {@link OnLoadMoreListener} and the {@link OnLoadPreviousListener}.
+     *
+     * @param source
+     * @param listener merges the pages into the adapter
+     * @return the loader, to set the cache and the snapshot, call {@link #loadFirstPage()} to load the first page
+     */
+    public <Key, Item> PagedLoader<Key, Item> setPagedSource(PagedSource<Key, Item> source,
+                                                            OnPageLoadListener<Item> listener) {
+        return setPagedSource(source, PagedLoader.getDefaultExecutor(), listener);
+    }
+
+    /**
+     * Sets the source of the pages, the list refreshes and loads more from it by itself.<br>
+     * <p>The pages are loaded on the executor and delivered to the listener on the main thread,
+     * {@link #refreshCompleted()} and {@link #loadMoreCompleted(boolean)} are called after it.<br>
+     * <p>Replaces the {@link OnRefreshListener}, the {@link OnLoadMoreListener} and the {@link OnLoadPreviousListener}.
+     *
+     * @param source
+     * @param executor runs the loads
+     * @param listener merges the pages into the adapter
+     * @return the loader, to set the cache and the snapshot, call {@link #loadFirstPage()} to load the first page
+     */
+    public <Key, Item> PagedLoader<Key, Item> setPagedSource(PagedSource<Key, Item> source, Executor executor,
+                                                            OnPageLoadListener<Item> listener) {
+        final PullPaging<Key, Item> paging = new PullPaging<Key, Item>(source, executor, listener,
+                mLoad.getPagingTarget());
+        setOnRefreshListener(paging);
+        setOnLoadMoreListener(paging);
+        setOnLoadPreviousListener(paging);
+        return paging.getLoader();
     }
 
     /**
@@ -513,6 +788,51 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
         this.mLoadMode = mode;
     }
 
+    /**
+     * Sets the prefetch distance in items for {@link LoadMode#AUTO_LOAD}.<br>
+     * <p>Loads more as soon as no more than this many items are left below the screen, while scrolling or flinging,
+     * instead of waiting for the scroll to stop at the end.<br>
+     * default is 0(disabled)
+     *
+     * @param items
+     */
+    public void setPrefetchItems(int items) {
+        mLoadMoreTrigger.setPrefetchItems(items);
+    }
+
+    /**
+     * Sets the prefetch distance of load previous in items.<br>
+     * <p>Loads the page before as soon as no more than this many items are left above the screen.<br>
+     * default is 0(when the first item is shown)
+     *
+     * @param items
+     */
+    public void setPreviousPrefetchItems(int items) {
+        mLoadMoreTrigger.setPreviousPrefetchItems(items);
+    }
+
+    /**
+     * Sets the prefetch distance in screen heights for {@link LoadMode#AUTO_LOAD}.<br>
+     * <p>Loads more as soon as no more than this much content is left below the screen.<br>
+     * default is 0(disabled)
+     *
+     * @param screens
+     */
+    public void setPrefetchScreens(float screens) {
+        mLoadMoreTrigger.setPrefetchScreens(screens);
+    }
+
+    /**
+     * Sets whether the prefetch distance adapts to how long loading more takes and how fast the list is scrolled.<br>
+     * <p>A slow network loads earlier, a fast one closer to the end, {@link #setPrefetchItems(int)} is the minimum.<br>
+     * default is false
+     *
+     * @param enable
+     */
+    public void setAdaptivePrefetch(boolean enable) {
+        mLoadMoreTrigger.setAdaptivePrefetch(enable);
+    }
+
     /**
      * Sets the pull listview can over scroll or not.
      *
@@ -522,6 +842,57 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
         this.mEnableOverScroll = enable;
     }
 
+    /**
+     * Sets whether a fast fling can refresh or load more after a shorter pull.<br>
+     * <p>Released faster than 1000dp/s and pulled over half of the header(footer) height, it refreshes(loads more)
+     * as if released over the header(footer).<br>
+     * default is false
+     *
+     * @param enable
+     */
+    public void setFlingToLoad(boolean enable) {
+        mTouchTracker.setFlingToLoad(enable);
+    }
+
+    /**
+     * Sets the resistance of the pull.<br>
+     * <p>default is {@link PullResistance#TYPE_LINEAR} with {@link #OFFSET_RATIO}
+     *
+     * @param resistance
+     * @see PullResistance
+     */
+    public void setPullResistance(PullResistance resistance) {
+        mEngine.setResistance(resistance);
+    }
+
+    /**
+     * Sets whether to move the content by drawing offset while pulling.<br>
+     * <p>The header/footer padding is changed only when released, so the rows are not laid out again
+     * on every move. The list doesn't clip its children and padding in this mode.<br>
+     * default is false
+     *
+     * @param enable
+     */
+    public void setTranslatePull(boolean enable) {
+        this.mTranslatePull = enable;
+        mLoad.setTranslatePull(enable);
+        // The hidden header/footer is drawn outside of its bounds
+        setClipChildren(!enable);
+        setClipToPadding(!enable);
+    }
+
+    /**
+     * Sets the interpolator of the animation after released.<br>
+     * <p>The header/footer animates to the loading position or to hidden with it,
+     * default is a {@link android.view.animation.DecelerateInterpolator}
+     *
+     * @param interpolator
+     */
+    public void setSettleInterpolator(Interpolator interpolator) {
+        mHeaderSettler.setInterpolator(interpolator);
+        mLoad.setSettleInterpolator(interpolator);
+    }
+
     /**
      * Gets it is refreshing<br/>
      * </br><p/>If doing refresh operation, you need to use this method before {@link #refreshCompleted()}<br/>
@@ -530,7 +901,7 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @return
      */
     public boolean isRefreshing() {
-        return mRefreshing;
+        return mLoad.isRefreshing();
     }
 
     /**
@@ -538,10 +909,75 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * @return
      */
     public boolean canLoadMore() {
-        return mEnableLoadMore;
+        return mLoad.canLoadMore();
     }
 
     private void initView(Context context, AttributeSet attrs) {
+        mEngine = new PullGestureEngine(this);
+        mTouchTracker = new PullTouchTracker(this, mEngine);
+        mHeaderSettler = new PullSettler(context);
+        mFrameScheduler = new PullFrameScheduler(this, new PullFrameScheduler.Callback() {
+            @Override
+            public void onFrame() {
+                onPullFrame();
+            }
+        });
+        mDownToUpAnimation = new RotateAnimation(0, -180, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
+        mDownToUpAnimation.setInterpolator(new LinearInterpolator());
+        mDownToUpAnimation.setDuration(ROTATE_ANIMATION_DURATION);
+        mDownToUpAnimation.setFillAfter(true);
+
+
+        mUpToDownAnimation = new RotateAnimation(-180, 0, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
+        mUpToDownAnimation.setInterpolator(new LinearInterpolator());
+        mUpToDownAnimation.setDuration(ROTATE_ANIMATION_DURATION);
+        mUpToDownAnimation.setFillAfter(true);
+
+        mEngine.setState(IDEL);
+        mLoad = new PullLoadController(this, mEngine, mLoadMoreTrigger, mScrollMetrics, mFrameScheduler,
+                mDownToUpAnimation, mUpToDownAnimation, new PullLoadController.Host() {
+            @Override
+            public void refresh() {
+                PullExpandableListView.this.refresh();
+            }
+
+            @Override
+            public void loadMore() {
+                PullExpandableListView.this.loadMore();
+            }
+
+            @Override
+            public void refreshCompleted() {
+                PullExpandableListView.this.refreshCompleted();
+            }
+
+            @Override
+            public void loadMoreCompleted(boolean canLoadMore) {
+                PullExpandableListView.this.loadMoreCompleted(canLoadMore);
+            }
+
+            @Override
+            public void setPullOffset(int offset) {
+                PullExpandableListView.this.setPullOffset(offset);
+            }
+        });
+        mScrollMetrics.setSource(new PullScrollMetrics.Source() {
+            @Override
+            public int computeScrollOffset() {
+                return computeVerticalScrollOffset();
+            }
+
+            @Override
+            public int computeScrollExtent() {
+                return computeVerticalScrollExtent();
+            }
+
+            @Override
+            public int computeScrollRange() {
+                return computeVerticalScrollRange();
+            }
+        });
+
         if(null != attrs) {
             final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PullView);
             if(a.hasValue(R.styleable.PullView_loadMode)) {
@@ -554,42 +990,65 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
             if(a.hasValue(R.styleable.PullView_overScroll)) {
                 mEnableOverScroll = a.getBoolean(R.styleable.PullView_overScroll, true);
             }
+            if(a.hasValue(R.styleable.PullView_pullResistance) || a.hasValue(R.styleable.PullView_pullRatio)
+                    || a.hasValue(R.styleable.PullView_maxPullDistance)) {
+                final int type = a.getInt(R.styleable.PullView_pullResistance, PullResistance.TYPE_LINEAR);
+                // The linear pull has no limit unless it's set
+                final int maxDistance = type == PullResistance.TYPE_LINEAR ? 0
+                        : (int) (DEFAULT_MAX_PULL_DISTANCE * context.getResources().getDisplayMetrics().density);
+                setPullResistance(PullResistance.create(type,
+                        a.getFloat(R.styleable.PullView_pullRatio, OFFSET_RATIO),
+                        a.getDimensionPixelSize(R.styleable.PullView_maxPullDistance, maxDistance)));
+            }
+            if(a.hasValue(R.styleable.PullView_prefetchItems)) {
+                setPrefetchItems(a.getInt(R.styleable.PullView_prefetchItems, 0));
+            }
+            if(a.hasValue(R.styleable.PullView_prefetchScreens)) {
+                setPrefetchScreens(a.getFloat(R.styleable.PullView_prefetchScreens, 0f));
+            }
+            if(a.hasValue(R.styleable.PullView_adaptivePrefetch)) {
+                setAdaptivePrefetch(a.getBoolean(R.styleable.PullView_adaptivePrefetch, false));
+            }
+            if(a.hasValue(R.styleable.PullView_loadTimeout)) {
+                setLoadTimeout(a.getInt(R.styleable.PullView_loadTimeout, 0));
+            }
+            if(a.hasValue(R.styleable.PullView_loadRetries)) {
+                final int retries = a.getInt(R.styleable.PullView_loadRetries, RetryPolicy.DEFAULT_MAX_RETRIES);
+                setRetryPolicy(retries > 0 ? new RetryPolicy(retries, RetryPolicy.DEFAULT_BASE_DELAY,
+                        RetryPolicy.DEFAULT_MAX_DELAY) : null);
+            }
+            if(a.hasValue(R.styleable.PullView_flingToLoad)) {
+                setFlingToLoad(a.getBoolean(R.styleable.PullView_flingToLoad, false));
+            }
+            if(a.hasValue(R.styleable.PullView_translatePull)) {
+                setTranslatePull(a.getBoolean(R.styleable.PullView_translatePull, false));
+            }
+            if(a.hasValue(R.styleable.PullView_settleInterpolator)) {
+                setSettleInterpolator(AnimationUtils.loadInterpolator(context,
+                        a.getResourceId(R.styleable.PullView_settleInterpolator, 0)));
+            }
             a.recycle();
         }
 
-        mDownToUpAnimation = new RotateAnimation(0, -180, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
-        mDownToUpAnimation.setInterpolator(new LinearInterpolator());
-        mDownToUpAnimation.setDuration(ROTATE_ANIMATION_DURATION);
-        mDownToUpAnimation.setFillAfter(true);
-
-
-        mUpToDownAnimation = new RotateAnimation(-180, 0, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
-        mUpToDownAnimation.setInterpolator(new LinearInterpolator());
-        mUpToDownAnimation.setDuration(ROTATE_ANIMATION_DURATION);
-        mUpToDownAnimation.setFillAfter(true);
-
         mHeaderView = new PullHeaderView(context);
         mHeaderView.setLabelVisibility(View.VISIBLE);
         addHeaderView(mHeaderView, null, true);
 
-        mState = IDEL;
+        mEngine.setState(IDEL);
         updateHeaderViewByState(-mHeaderView.mViewHeight);
         mLastRefreshTime = DateUtil.getSystemDate(getResources().getString(R.string.pull_view_date_format));
 
-        mFooterView = new PullFooterView(context);
-        addFooterView(mFooterView, null, true);
-
-        mState = IDEL;
-        mRefreshing = false;
-        mRecording = false;
-        mEnableLoadMore = null != mLoadMoreListener && mEnableLoadMore;
-        updateFooterViewByState(-mFooterView.mViewHeight);
-
         super.setOnScrollListener(this);
     }
 
     private void updateHeaderViewByState(int paddingTop) {
-        switch (mState) {
+        // Anything waiting for the next frame is out of date now
+        mHeaderPending = false;
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
+        mHeaderViewState = mEngine.getState();
+        switch (mHeaderViewState) {
             case RELEASE_TO_LOAD:
                 mHeaderView.setArrowVisibility(View.VISIBLE);
                 mHeaderView.setProgressVisibility(View.GONE);
@@ -638,21 +1097,13 @@ public class PullExpandableListView extends ExpandableListView implements IPullV
      * Do load more operation.
      */
     private void loadMore() {
-        if (null == mLoadMoreListener || mState == LOADING) {
-            return;
-        }
-        mRefreshing = false;
-        mLoadMoreListener.onLoadMore();
+        mLoad.loadMore();
     }
 
     /**
      * Do refresh operation.
      */
     private void refresh() {
-        if (null == mRefreshListener || mState == LOADING) {
-            return;
-        }
-        mRefreshing = true;
-        mRefreshListener.onRefresh();
+        mLoad.refresh();
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * Usage Runs a callback at most once per frame.<br>
+ * <p>The widgets keep the latest pull offset and apply it here, so the header/footer padding
+ * (and the layout pass it causes) is changed once per vsync, not once per MotionEvent.<br>
+ * <p>Uses {@link Choreographer} on Jelly Bean and later, posts to the view's message queue before.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullFrameScheduler {
+
+    private final View mView;
+    private final Callback mCallback;
+    private final Runnable mRunnable;
+    private final Object mFrameCallback;
+
+    private boolean mScheduled = false;
+
+    /**
+     * Constructor
+     *
+     * @param view     the view to post to before Jelly Bean
+     * @param callback
+     */
+    PullFrameScheduler(View view, Callback callback) {
+        this.mView = view;
+        this.mCallback = callback;
+        this.mRunnable = new Runnable() {
+            @Override
+            public void run() {
+                doFrame();
+            }
+        };
+        this.mFrameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? FrameCallbackCompat.create(this) : null;
+    }
+
+    /**
+     * Schedule the callback for the next frame, does nothing if already scheduled.
+     */
+    void schedule() {
+        if (mScheduled) {
+            return;
+        }
+        mScheduled = true;
+        if (null != mFrameCallback) {
+            FrameCallbackCompat.post(mFrameCallback);
+        } else {
+            mView.post(mRunnable);
+        }
+    }
+
+    /**
+     * Cancel the scheduled callback
+     */
+    void cancel() {
+        if (!mScheduled) {
+            return;
+        }
+        mScheduled = false;
+        if (null != mFrameCallback) {
+            FrameCallbackCompat.remove(mFrameCallback);
+        } else {
+            mView.removeCallbacks(mRunnable);
+        }
+    }
+
+    /**
+     * Whether the callback is waiting for the next frame
+     *
+     * @return
+     */
+    boolean isScheduled() {
+        return mScheduled;
+    }
+
+    private void doFrame() {
+        if (!mScheduled) {
+            return;
+        }
+        mScheduled = false;
+        mCallback.onFrame();
+    }
+
+    /**
+     * The callback run once per frame
+     */
+    interface Callback {
+        void onFrame();
+    }
+
+    /**
+     * Keeps {@link Choreographer} out of the class verification on old devices.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class FrameCallbackCompat {
+
+        static Object create(final PullFrameScheduler scheduler) {
+            return new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    scheduler.doFrame();
+                }
+            };
+        }
+
+        static void post(Object callback) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+        }
+
+        static void remove(Object callback) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
+        }
+    }
+}
@@ -17,11 +17,10 @@
  */
 package com.opensource.pullview;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.util.AttributeSet;
-import android.view.MotionEvent;
 import android.view.View;
+import android.view.animation.Interpolator;
 
 import com.opensource.pullview.utils.DateUtil;
 
@@ -35,6 +34,8 @@ import com.opensource.pullview.utils.DateUtil;
  * <p/>
  * <p>You need to call {@link #refreshCompleted()} when refresh thread finished,<br>
  * Similarly, You also need to call {@link #loadMoreCompleted(boolean)} when load thread finished.<br>
+ * They must be called on the main thread, call {@link #postRefreshCompleted()} and
+ * {@link #postLoadMoreCompleted(boolean)} on the load thread instead.<br>
  *
  * @author yinglovezhuzhu@gmail.com
  */
@@ -77,112 +78,117 @@ public class PullListView extends BasePullListView {
     }
 
 
-    private int mStartY = 0;
-    private boolean mRecording = false;
     private boolean mIsBack = false;
-    
-
-    @SuppressLint("ClickableViewAccessibility")
-	@Override
-    public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                mStartY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mVerticalScrollRange == mVerticalScrollOffset + mVerticalScrollExtent;
+
+    private boolean mHeaderPending = false;
+    private int mPendingHeaderPadding = 0;
+    /**
+     * The state the header views show, setting their texts lays out the list again
+     */
+    private int mHeaderViewState = -1;
+    private PullSettler mHeaderSettler;
+
+    @Override
+    public boolean canPull(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            return mScrollMetrics.isAtTop() && (mEnablePullRefresh || mEnableOverScroll);
+        }
+        return super.canPull(edge);
+    }
+
+    @Override
+    public int getPullThreshold(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            return mHeaderView.mViewHeight;
+        }
+        return super.getPullThreshold(edge);
+    }
+
+    @Override
+    public void onPullChanged(int edge, int state, int lastState, int distance) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            super.onPullChanged(edge, state, lastState, distance);
+            return;
+        }
+        switch (state) {
+            case RELEASE_TO_LOAD:
+            case PULL_TO_LOAD:
+                if (state == RELEASE_TO_LOAD && lastState == PULL_TO_LOAD) {
+                    mIsBack = true;
                 }
+                postHeaderUpdate(distance - mHeaderView.mViewHeight);
                 break;
-            case MotionEvent.ACTION_MOVE:
-                int tempY = (int) event.getY();
-                int moveY = tempY - mStartY;
-                if (mVerticalScrollOffset <= 0 || mFirstItemIndex == 0) {
-                    if (!mRecording) {
-                        mRecording = true;
-                        mStartY = tempY;
-                    }
-                    int scrollY = moveY / OFFSET_RATIO;
-
-                    if (mState != LOADING && (mEnablePullRefresh || mEnableOverScroll)) {
-                        // Ensure that the process of setting padding, current position has always been at the header,
-                        // or if when the list exceeds the screen, then, when the push, the list will scroll at the same time
-                        switch (mState) {
-                            case RELEASE_TO_LOAD: // Release to load data
-                            	if(mFirstItemIndex + mVisibleItemCount < mTotalItemCount) {
-                            		setSelection(mFirstItemIndex);
-                            	}
-                                // Slide up, header part was covered, but not all be covered(Pull up to cancel)
-                                if (moveY > 0 && (scrollY < mHeaderView.mViewHeight)) {
-                                    mState = PULL_TO_LOAD;
-                                } else if (moveY <= 0 && mFirstItemIndex == 0) {
-                                    // Slide to the top
-                                    mState = IDEL;
-                                }
-                                updateHeaderViewByState(scrollY - mHeaderView.mViewHeight);
-                                break;
-                            case PULL_TO_LOAD:
-                            	if(mFirstItemIndex + mVisibleItemCount < mTotalItemCount) {
-                            		setSelection(mFirstItemIndex);
-                            	}
-                                // Pull down to the state can enter RELEASE_TO_REFRESH
-                                if (scrollY >= mHeaderView.mViewHeight) {
-                                    mState = RELEASE_TO_LOAD;
-                                    mIsBack = true;
-                                } else if (moveY <= 0 && mFirstItemIndex == 0) {
-                                    mState = IDEL;
-                                }
-                                updateHeaderViewByState(scrollY - mHeaderView.mViewHeight);
-                                break;
-                            case IDEL:
-                                if (moveY > 0 && mFirstItemIndex == 0) {
-                                    mState = PULL_TO_LOAD;
-                                }
-                                updateHeaderViewByState(-mHeaderView.mViewHeight);
-                                break;
-                            default:
-                                break;
-                        }
-                    }
+            case LOADING:
+                if (lastState != LOADING) {
+                    settleHeader(distance, 0);
                 }
                 break;
-            case MotionEvent.ACTION_UP:
-                if (mVerticalScrollOffset <= 0 || mFirstItemIndex == 0) {
-                    switch (mState) {
-                        case IDEL:
-                            //Do nothing.
-                            break;
-                        case PULL_TO_LOAD:
-                            //Pull to refresh.
-                            mState = IDEL;
-                            updateHeaderViewByState(-mHeaderView.mViewHeight);
-                            break;
-                        case RELEASE_TO_LOAD:
-                            if (mEnablePullRefresh) {
-                                //Release to refresh.
-                                updateHeaderViewByState(0);
-                                refresh();
-                                updateHeaderViewByState(0);
-                            } else {
-                                mState = IDEL;
-                                updateHeaderViewByState(-mHeaderView.mViewHeight);
-                            }
-                            break;
-                        default:
-                            break;
-                    }
-                } 
-                mRecording = false;
-                mIsBack = false;
+            case IDEL:
+                settleHeader(distance, -mHeaderView.mViewHeight);
                 break;
             default:
                 break;
         }
-        return super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onPullFrame() {
+        super.onPullFrame();
+        if (mHeaderSettler.computeOffset()) {
+            final int padding = mHeaderSettler.getCurrent();
+            if (mHeaderSettler.isFinished()) {
+                setPullOffset(0);
+                mHeaderView.setPadding(0, padding, 0, 0);
+            } else {
+                if (mTranslatePull) {
+                    setPullOffset(padding + mHeaderView.mViewHeight);
+                } else {
+                    mHeaderView.setPadding(0, padding, 0, 0);
+                }
+                mFrameScheduler.schedule();
+            }
+        }
+        if (mHeaderPending) {
+            final int state = mEngine.getState();
+            final boolean pulling = state == PULL_TO_LOAD || state == RELEASE_TO_LOAD;
+            if (pulling && mTranslatePull) {
+                // Keep the layout, move the content down to show the header
+                setPullOffset(mPendingHeaderPadding + mHeaderView.mViewHeight);
+                if (state != mHeaderViewState) {
+                    updateHeaderViewByState(-mHeaderView.mViewHeight);
+                } else {
+                    mHeaderPending = false;
+                }
+                return;
+            }
+            // The list doesn't scroll while pulling, the header stays at the top by itself.
+            setPullOffset(0);
+            updateHeaderViewByState(mPendingHeaderPadding);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mHeaderSettler.finish();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onPullRelease(int edge) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            return super.onPullRelease(edge);
+        }
+        if (mEnablePullRefresh) {
+            //Release to refresh.
+            refresh();
+            return true;
+        }
+        return false;
     }
 
     @Override
     public void refreshCompleted() {
         super.refreshCompleted();
-        mRecording = false;
         mIsBack = false;
         mLastRefreshTime = DateUtil.getSystemDate(getResources().getString(R.string.pull_view_date_format));
         updateHeaderViewByState(-mHeaderView.mViewHeight);
@@ -195,7 +201,11 @@ public class PullListView extends BasePullListView {
      * @param text
      */
     public void onHeadLoading(CharSequence text) {
-        mState = LOADING;
+        mEngine.setState(LOADING);
+        mHeaderPending = false;
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
         mHeaderView.setPadding(0, 0, 0, 0);
         mHeaderView.setArrowVisibility(View.GONE);
         mHeaderView.setProgressVisibility(View.VISIBLE);
@@ -203,6 +213,7 @@ public class PullListView extends BasePullListView {
         mHeaderView.setLabelVisibility(View.GONE);
         mHeaderView.startArrowAnimation(null);
         mHeaderView.setTitleText(text);
+        mHeaderViewState = LOADING;
         mHeaderView.setVisibility(View.VISIBLE);
     }
 
@@ -213,7 +224,11 @@ public class PullListView extends BasePullListView {
      * @param resId
      */
     public void onHeadLoading(int resId) {
-        mState = LOADING;
+        mEngine.setState(LOADING);
+        mHeaderPending = false;
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
         mHeaderView.setPadding(0, 0, 0, 0);
         mHeaderView.setArrowVisibility(View.GONE);
         mHeaderView.setProgressVisibility(View.VISIBLE);
@@ -221,9 +236,16 @@ public class PullListView extends BasePullListView {
         mHeaderView.setLabelVisibility(View.GONE);
         mHeaderView.startArrowAnimation(null);
         mHeaderView.setTitleText(resId);
+        mHeaderViewState = LOADING;
         mHeaderView.setVisibility(View.VISIBLE);
     }
 
+    @Override
+    public void setSettleInterpolator(Interpolator interpolator) {
+        super.setSettleInterpolator(interpolator);
+        mHeaderSettler.setInterpolator(interpolator);
+    }
+
     /**
      * Set last refresh time<br>
      * <p>The value of {@link #mLastRefreshTime} initialized to the time when create {@link com.opensource.pullview.PullListView} object.<br>
@@ -263,13 +285,54 @@ public class PullListView extends BasePullListView {
         mHeaderView.setLabelVisibility(View.VISIBLE);
         addHeaderView(mHeaderView, null, true);
 
-        mState = IDEL;
+        mHeaderSettler = new PullSettler(context);
+        mHeaderSettler.setInterpolator(mSettleInterpolator);
+
+        mEngine.setState(IDEL);
         updateHeaderViewByState(-mHeaderView.mViewHeight);
         mLastRefreshTime = DateUtil.getSystemDate(getResources().getString(R.string.pull_view_date_format));
     }
 
+    /**
+     * Update the header to the state, and animate the padding from the released position.
+     *
+     * @param distance   the pull distance
+     * @param paddingTop the padding to settle to
+     */
+    private void settleHeader(int distance, int paddingTop) {
+        if (!mEngine.isReleased() || distance <= 0) {
+            postHeaderUpdate(paddingTop);
+            return;
+        }
+        final int from = distance - mHeaderView.mViewHeight;
+        // The state views change now, the padding(the offset in translate mode) is animated.
+        updateHeaderViewByState(mTranslatePull ? -mHeaderView.mViewHeight : from);
+        mHeaderSettler.start(from, paddingTop, mEngine.getReleasePullVelocity());
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Keep the header padding and update the header on the next frame
+     *
+     * @param paddingTop
+     */
+    private void postHeaderUpdate(int paddingTop) {
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
+        mPendingHeaderPadding = paddingTop;
+        mHeaderPending = true;
+        mFrameScheduler.schedule();
+    }
+
     private void updateHeaderViewByState(int paddingTop) {
-        switch (mState) {
+        // Anything waiting for the next frame is out of date now
+        mHeaderPending = false;
+        if (mHeaderSettler.abort()) {
+            setPullOffset(0);
+        }
+        mHeaderViewState = mEngine.getState();
+        switch (mHeaderViewState) {
             case RELEASE_TO_LOAD:
                 mHeaderView.setArrowVisibility(View.VISIBLE);
                 mHeaderView.setProgressVisibility(View.GONE);
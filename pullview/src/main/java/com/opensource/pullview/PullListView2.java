@@ -17,12 +17,11 @@
  */
 package com.opensource.pullview;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.AttributeSet;
-import android.view.MotionEvent;
 import android.view.View;
+import android.view.animation.Interpolator;
 import android.widget.ImageView;
 
 /**
@@ -35,6 +34,8 @@ import android.widget.ImageView;
  * <p/>
  * <p>You need to call {@link #refreshCompleted()}  when refresh thread finished,<br>
  * Similarly, You also need to call {@link #loadMoreCompleted(boolean)} when load thread finished.<br>
+ * They must be called on the main thread, call {@link #postRefreshCompleted()} and
+ * {@link #postLoadMoreCompleted(boolean)} on the load thread instead.<br>
  *
  * @author yinglovezhuzhu@gmail.com
  */
@@ -51,6 +52,10 @@ public class PullListView2 extends BasePullListView {
      */
     private int mMinPullDownDist = DEFAULT_MIN_PULL_DOWN_REFRESH_DISTANCE;
 
+    private boolean mHeaderPending = false;
+    private int mPendingHeaderPadding = 0;
+    private PullSettler mHeaderSettler;
+
 
     /**
      * Constructor
@@ -82,107 +87,73 @@ public class PullListView2 extends BasePullListView {
         initView(context);
     }
 
-    private int mStartY = 0;
-    private boolean mRecording = false;
-
-    @SuppressLint("ClickableViewAccessibility")
-	@Override
-    public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                mStartY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mVerticalScrollOffset == 0;
-                }
-                break;
-            case MotionEvent.ACTION_MOVE:
-                int tempY = (int) event.getY();
-                if (mVerticalScrollOffset <= 0 || mFirstItemIndex == 0) {
-                    if (!mRecording) {
-                        mRecording = true;
-                        mStartY = tempY;
-                    }
-                    int moveY = tempY - mStartY;
-                    int scrollY = moveY / OFFSET_RATIO;
-
-                    // Ensure that the process of setting padding, current position has always been at the header,
-                    // or if when the list exceeds the screen, then, when the push, the list will scroll at the same time
-                    switch (mState) {
-                        case RELEASE_TO_LOAD: // Release to load data
-                        	if(mFirstItemIndex + mVisibleItemCount < mTotalItemCount) {
-                        		setSelection(mFirstItemIndex);
-                        	}
-                            // Slide up, header part was covered, but not all be covered(Pull up to cancel)
-                            if (moveY > 0 && (scrollY < mMinPullDownDist)) {
-                                mState = PULL_TO_LOAD;
-                            } else if (moveY <= 0 && mFirstItemIndex == 0) {
-                                // Slide to the top
-                                mState = IDEL;
-                            }
-                            updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight + scrollY);
-                            break;
-                        case PULL_TO_LOAD:
-                        	if(mFirstItemIndex + mVisibleItemCount < mTotalItemCount) {
-                        		setSelection(mFirstItemIndex);
-                        	}
-                            // Pull down to the state can enter RELEASE_TO_REFRESH
-                            if (scrollY >= mMinPullDownDist) {
-                                mState = RELEASE_TO_LOAD;
-                            } else if (moveY <= 0 && mFirstItemIndex == 0) {
-                                mState = IDEL;
-                            }
-                            updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight + scrollY);
-                            break;
-                        case LOADING:
-                            if (moveY > 0 && mFirstItemIndex == 0) {
-                                updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight + scrollY);
-                            }
-                            break;
-                        case IDEL:
-                            if (moveY > 0 && mFirstItemIndex == 0) {
-                                mState = PULL_TO_LOAD;
-                            }
-                            updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
-                            break;
-                        default:
-                            break;
-                    }
-                }
-                break;
-            case MotionEvent.ACTION_UP:
-                if (mVerticalScrollOffset <= 0 || mFirstItemIndex == 0) {
-                    switch (mState) {
-                        case IDEL:
-                            //Do nothing.
-                            break;
-                        case PULL_TO_LOAD:
-                            //Pull to refresh.
-                            mState = IDEL;
-                            updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
-                            break;
-                        case RELEASE_TO_LOAD:
-                            if (mEnablePullRefresh) {
-                                //Release to refresh.
-                                refresh();
-                                mState = LOADING;
-                            } else {
-                                mState = IDEL;
-                            }
-                            updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
-                            break;
-                        case LOADING:
-                        	updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
-                            break;
-                        default:
-                            break;
-                    }
-                }
-                mRecording = false;
-                break;
-            default:
-                break;
+    @Override
+    public boolean canPull(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            return mScrollMetrics.isAtTop();
         }
-        return super.onTouchEvent(event);
+        return super.canPull(edge);
+    }
+
+    @Override
+    public int getPullThreshold(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            return mMinPullDownDist;
+        }
+        return super.getPullThreshold(edge);
+    }
+
+    @Override
+    public void onPullChanged(int edge, int state, int lastState, int distance) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            super.onPullChanged(edge, state, lastState, distance);
+            return;
+        }
+        final int paddingTop = mHeaderView.mVisibleHeight - mHeaderView.mViewHeight + distance;
+        if (mEngine.isReleased() && distance > 0) {
+            // Animate back to the normal height from the released position.
+            mHeaderSettler.start(paddingTop, paddingTop - distance, mEngine.getReleasePullVelocity());
+        } else {
+            mHeaderSettler.abort();
+            mPendingHeaderPadding = paddingTop;
+            mHeaderPending = true;
+        }
+        mFrameScheduler.schedule();
+    }
+
+    @Override
+    protected void onPullFrame() {
+        super.onPullFrame();
+        if (mHeaderSettler.computeOffset()) {
+            mPendingHeaderPadding = mHeaderSettler.getCurrent();
+            mHeaderPending = true;
+            if (!mHeaderSettler.isFinished()) {
+                mFrameScheduler.schedule();
+            }
+        }
+        if (mHeaderPending) {
+            // The list doesn't scroll while pulling, the header stays at the top by itself.
+            updateHeaderViewByState(mPendingHeaderPadding);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mHeaderSettler.finish();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onPullRelease(int edge) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            return super.onPullRelease(edge);
+        }
+        if (mEnablePullRefresh) {
+            //Release to refresh.
+            refresh();
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -200,7 +171,7 @@ public class PullListView2 extends BasePullListView {
     @Override
     public void refreshCompleted() {
         super.refreshCompleted();
-        mRecording = false;
+        mHeaderSettler.abort();
         mHeaderView.setStateContentVisibility(View.VISIBLE);
         updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
     }
@@ -211,6 +182,12 @@ public class PullListView2 extends BasePullListView {
         mHeaderView.setStateContentVisibility(View.VISIBLE);
     }
 
+    @Override
+    public void setSettleInterpolator(Interpolator interpolator) {
+        super.setSettleInterpolator(interpolator);
+        mHeaderSettler.setInterpolator(interpolator);
+    }
+
     /**
      * Sets header background image to ImageView
      *
@@ -247,7 +224,7 @@ public class PullListView2 extends BasePullListView {
      */
     public void setHeaderBackgroundView(View backgroundView) {
         mHeaderView.setBackgroundView(backgroundView);
-        if (IDEL == mState) {
+        if (IDEL == mEngine.getState()) {
             updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
         }
     }
@@ -259,7 +236,7 @@ public class PullListView2 extends BasePullListView {
      */
     public void setHeaderBackgroundView(int layoutId) {
         mHeaderView.setBackgroundView(layoutId);
-        if (IDEL == mState) {
+        if (IDEL == mEngine.getState()) {
             updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
         }
     }
@@ -271,7 +248,7 @@ public class PullListView2 extends BasePullListView {
      */
     public void setHeaderContentView(View contentView) {
         mHeaderView.setContentView(contentView);
-        if (IDEL == mState) {
+        if (IDEL == mEngine.getState()) {
             updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
         }
     }
@@ -283,7 +260,7 @@ public class PullListView2 extends BasePullListView {
      */
     public void setHeaderContentView(int layoutId) {
         mHeaderView.setContentView(layoutId);
-        if (IDEL == mState) {
+        if (IDEL == mEngine.getState()) {
             updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
         }
     }
@@ -319,12 +296,18 @@ public class PullListView2 extends BasePullListView {
         mHeaderView.setStateContentVisibility(mEnablePullRefresh ? View.VISIBLE : View.INVISIBLE);
         addHeaderView(mHeaderView, null, false);
 
-        mState = IDEL;
+        mHeaderSettler = new PullSettler(context);
+        mHeaderSettler.setInterpolator(mSettleInterpolator);
+
+        mEngine.setPullWhileLoading(true);
+        mEngine.setState(IDEL);
         updateHeaderViewByState(mHeaderView.mVisibleHeight - mHeaderView.mViewHeight);
     }
 
     private void updateHeaderViewByState(int paddingTop) {
-        switch (mState) {
+        // Anything waiting for the next frame is out of date now
+        mHeaderPending = false;
+        switch (mEngine.getState()) {
             case RELEASE_TO_LOAD:
                 mHeaderView.setStateContentPadding(0, -paddingTop, 0, 0);
                 break;
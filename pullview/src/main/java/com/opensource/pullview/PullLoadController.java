@@ -0,0 +1,943 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.opensource.pullview;
+
+import android.os.SystemClock;
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.Interpolator;
+import android.widget.ListView;
+
+/**
+ * Usage Refreshes, loads more and loads previous for a pull list, and shows the load more on the footer.<br>
+ * <p>The load logic shared by {@link BasePullListView} and {@link PullExpandableListView}: the load generation,
+ * the cancellation signals, the timeout and the retries, the completions posted from any thread,
+ * and the footer following the state of the gesture engine.<br>
+ * <p>The list keeps the header and the touch handling, and forwards its public methods here.
+ * The methods the list can override(refresh, load more and their completions) are called through the {@link Host}.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullLoadController implements IPullView {
+
+    private final ListView mListView;
+    private final PullGestureEngine mEngine;
+    private final LoadMoreTrigger mLoadMoreTrigger;
+    private final PullScrollMetrics mScrollMetrics;
+    private final PullFrameScheduler mFrameScheduler;
+    private final Host mHost;
+
+    private final PullFooterView mFooterView;
+    private final PullSettler mFooterSettler;
+    private final Animation mDownToUpAnimation;
+    private final Animation mUpToDownAnimation;
+
+    /**
+     * Times out and retries the loads
+     */
+    private final PullLoadRetry mLoadRetry;
+    /**
+     * Retries the load previous, it has no timeout
+     */
+    private final PullLoadRetry mLoadPreviousRetry;
+    /**
+     * Applies the completions posted from any thread
+     */
+    private final PullCompletion mCompletion;
+
+    private OnRefreshListener mRefreshListener;
+    private OnLoadMoreListener mLoadMoreListener;
+    private OnLoadPreviousListener mLoadPreviousListener;
+
+    /**
+     * Whether it can load more data.
+     */
+    private boolean mEnableLoadMore = false;
+    /**
+     * Whether it can load the page before the first one.
+     */
+    private boolean mEnableLoadPrevious = false;
+    /**
+     * Is refreshing data
+     */
+    private boolean mRefreshing = false;
+    /**
+     * Load generation, increased by every refresh, and when a load is canceled or timed out
+     */
+    private int mGeneration = 0;
+    /**
+     * The signal of the refresh or load more going on
+     */
+    private CancellationSignal mLoadSignal = null;
+    /**
+     * The last load more failed, the footer shows it until loaded again
+     */
+    private boolean mLoadError = false;
+    /**
+     * The first page is loading with the footer, when given up the footer shows the error
+     */
+    private boolean mLoadingFirstPage = false;
+    /**
+     * The signal of the load previous going on, it runs beside the refresh or load more
+     */
+    private CancellationSignal mLoadPreviousSignal = null;
+    /**
+     * The last load previous failed, the scroll doesn't load it until it's retried
+     */
+    private boolean mLoadPreviousFailed = false;
+    /**
+     * The failed load previous was given up, the scroll loads it again after the scroll stops
+     */
+    private boolean mLoadPreviousGivenUp = false;
+    /**
+     * The adapter keeps the first visible item by itself when items are inserted above it
+     */
+    private boolean mAdapterKeepsPosition = false;
+
+    /**
+     * Move the content by drawing offset while pulling, the padding is only changed on release.
+     */
+    private boolean mTranslatePull = false;
+    private boolean mIsBack = false;
+    private boolean mFooterPending = false;
+    private int mPendingFooterPadding = 0;
+    /**
+     * The state the footer views show, setting their texts lays out the list again
+     */
+    private int mFooterViewState = -1;
+
+    /**
+     * Completes the loads of a {@link PullPaging}, the items it inserts before the old ones are moved
+     * by the list unless the adapter keeps the position
+     */
+    private final PullPaging.Target mPagingTarget = new PullPaging.Target() {
+        @Override
+        public int getLoadGeneration() {
+            return mGeneration;
+        }
+
+        @Override
+        public CancellationSignal getLoadSignal() {
+            return mLoadSignal;
+        }
+
+        @Override
+        public boolean refreshCompleted(int generation) {
+            return PullLoadController.this.refreshCompleted(generation);
+        }
+
+        @Override
+        public boolean loadMoreCompleted(int generation, boolean canLoadMore) {
+            return PullLoadController.this.loadMoreCompleted(generation, canLoadMore);
+        }
+
+        @Override
+        public boolean setCanLoadMore(int generation, boolean canLoadMore) {
+            if (generation != mGeneration) {
+                return false;
+            }
+            PullLoadController.this.setCanLoadMore(canLoadMore);
+            return true;
+        }
+
+        @Override
+        public boolean loadFailed(int generation) {
+            return PullLoadController.this.loadFailed(generation);
+        }
+
+        @Override
+        public CancellationSignal getLoadPreviousSignal() {
+            return mLoadPreviousSignal;
+        }
+
+        @Override
+        public boolean loadPreviousCompleted(int generation, int count, boolean canLoadPrevious) {
+            return PullLoadController.this.loadPreviousCompleted(generation,
+                    mAdapterKeepsPosition ? 0 : count, canLoadPrevious);
+        }
+
+        @Override
+        public boolean loadPreviousFailed(int generation) {
+            return PullLoadController.this.loadPreviousFailed(generation);
+        }
+    };
+
+    /**
+     * Constructor, adds the footer to the list
+     *
+     * @param listView
+     * @param engine
+     * @param loadMoreTrigger
+     * @param scrollMetrics
+     * @param frameScheduler    shared with the header
+     * @param downToUpAnimation the arrow animation when the pull goes over the footer
+     * @param upToDownAnimation the arrow animation when the pull goes back
+     * @param host              the list
+     */
+    PullLoadController(ListView listView, PullGestureEngine engine, LoadMoreTrigger loadMoreTrigger,
+                       PullScrollMetrics scrollMetrics, PullFrameScheduler frameScheduler,
+                       Animation downToUpAnimation, Animation upToDownAnimation, Host host) {
+        this.mListView = listView;
+        this.mEngine = engine;
+        this.mLoadMoreTrigger = loadMoreTrigger;
+        this.mScrollMetrics = scrollMetrics;
+        this.mFrameScheduler = frameScheduler;
+        this.mDownToUpAnimation = downToUpAnimation;
+        this.mUpToDownAnimation = upToDownAnimation;
+        this.mHost = host;
+
+        mFooterSettler = new PullSettler(listView.getContext());
+        mLoadRetry = new PullLoadRetry(new PullLoadRetry.Callback() {
+            @Override
+            public void onLoadTimeout() {
+                PullLoadController.this.onLoadTimeout();
+            }
+
+            @Override
+            public void onRetry() {
+                retryLoad();
+            }
+        });
+        mLoadPreviousRetry = new PullLoadRetry(new PullLoadRetry.Callback() {
+            @Override
+            public void onLoadTimeout() {
+                // No timeout
+            }
+
+            @Override
+            public void onRetry() {
+                mLoadPreviousFailed = false;
+                loadPrevious();
+            }
+        });
+        mCompletion = new PullCompletion(new PullCompletion.Callback() {
+            @Override
+            public void onRefreshCompleted() {
+                mHost.refreshCompleted();
+            }
+
+            @Override
+            public void onLoadMoreCompleted(boolean canLoadMore) {
+                mHost.loadMoreCompleted(canLoadMore);
+            }
+        });
+
+        mFooterView = new PullFooterView(listView.getContext());
+        listView.addFooterView(mFooterView, null, true);
+        mFooterView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (!mLoadError || mEngine.getState() != IDEL) {
+                    return;
+                }
+                if (mLoadingFirstPage) {
+                    loadFirstPage();
+                    return;
+                }
+                mHost.loadMore();
+                updateFooterViewByState(0);
+            }
+        });
+        updateFooterViewByState(-mFooterView.mViewHeight);
+    }
+
+    PullPaging.Target getPagingTarget() {
+        return mPagingTarget;
+    }
+
+    void setOnRefreshListener(OnRefreshListener listener) {
+        this.mRefreshListener = listener;
+    }
+
+    void setOnLoadMoreListener(OnLoadMoreListener listener) {
+        this.mLoadMoreListener = listener;
+        mEnableLoadMore = null != listener;
+    }
+
+    void setOnLoadPreviousListener(OnLoadPreviousListener listener) {
+        this.mLoadPreviousListener = listener;
+        mEnableLoadPrevious = null != listener;
+    }
+
+    void setAdapterKeepsPosition(boolean keepsPosition) {
+        this.mAdapterKeepsPosition = keepsPosition;
+    }
+
+    void setTranslatePull(boolean enable) {
+        this.mTranslatePull = enable;
+    }
+
+    void setSettleInterpolator(Interpolator interpolator) {
+        mFooterSettler.setInterpolator(interpolator);
+    }
+
+    void setLoadTimeout(long timeout) {
+        mLoadRetry.setTimeout(timeout);
+    }
+
+    void setRetryPolicy(RetryPolicy policy) {
+        mLoadRetry.setPolicy(policy);
+        mLoadPreviousRetry.setPolicy(policy);
+    }
+
+    boolean isRefreshing() {
+        return mRefreshing;
+    }
+
+    boolean canLoadMore() {
+        return mEnableLoadMore;
+    }
+
+    boolean canLoadPrevious() {
+        return mEnableLoadPrevious;
+    }
+
+    int getLoadGeneration() {
+        return mGeneration;
+    }
+
+    CancellationSignal getLoadSignal() {
+        return mLoadSignal;
+    }
+
+    CancellationSignal getLoadPreviousSignal() {
+        return mLoadPreviousSignal;
+    }
+
+    int getFooterHeight() {
+        return mFooterView.mViewHeight;
+    }
+
+    /**
+     * The list scrolled, the scroll metrics are updated already
+     *
+     * @param mode
+     */
+    void onScroll(LoadMode mode) {
+        mLoadMoreTrigger.onScroll(mScrollMetrics, SystemClock.uptimeMillis());
+
+        // The header and footer rows are not items, an empty list doesn't prefetch
+        if (mLoadMoreTrigger.shouldPrefetch(mScrollMetrics, mListView.getHeaderViewsCount(),
+                mListView.getFooterViewsCount(), mode, mEnableLoadMore && !mLoadError, mEngine.getState())) {
+            // Close enough to the end, load the next page while still scrolling.
+            mHost.loadMore();
+            updateFooterViewByState(0);
+        }
+
+        if (mLoadMoreTrigger.shouldLoadPrevious(mScrollMetrics, mListView.getHeaderViewsCount(),
+                mEnableLoadPrevious && null == mLoadPreviousSignal && !mLoadPreviousFailed, mEngine.getState())) {
+            // Close enough to the top, load the page before while still scrolling.
+            loadPrevious();
+        }
+    }
+
+    /**
+     * The scroll stopped
+     *
+     * @param mode
+     */
+    void onScrollIdle(LoadMode mode) {
+        mLoadMoreTrigger.onScrollIdle();
+        if (mLoadPreviousGivenUp) {
+            // Loaded again when the list scrolls to the top next time
+            mLoadPreviousFailed = false;
+            mLoadPreviousGivenUp = false;
+        }
+        if (mLoadMoreTrigger.shouldAutoLoad(mScrollMetrics, mode, mEnableLoadMore && !mLoadError,
+                mEngine.getState())) {
+            mListView.setSelection(mScrollMetrics.getTotalItemCount());
+            mHost.loadMore();
+            updateFooterViewByState(0);
+        }
+    }
+
+    boolean canPull(LoadMode mode, boolean enableOverScroll) {
+        return mLoadMoreTrigger.canPull(mScrollMetrics, mode, mEnableLoadMore, enableOverScroll);
+    }
+
+    /**
+     * The state of the pull at the bottom changed
+     *
+     * @param state
+     * @param lastState
+     * @param distance
+     */
+    void onPullChanged(int state, int lastState, int distance) {
+        switch (state) {
+            case RELEASE_TO_LOAD:
+            case PULL_TO_LOAD:
+                if (state == RELEASE_TO_LOAD && lastState == PULL_TO_LOAD) {
+                    mIsBack = true;
+                }
+                postFooterUpdate(distance - mFooterView.mViewHeight);
+                break;
+            case LOADING:
+                if (lastState != LOADING) {
+                    settleFooter(distance, 0);
+                }
+                break;
+            case IDEL:
+                settleFooter(distance, -mFooterView.mViewHeight);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Released at the bottom
+     *
+     * @return true if it loads more
+     */
+    boolean onPullRelease() {
+        if (mEnableLoadMore) {
+            //Release to load more data.
+            mHost.loadMore();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The touch ended, the arrow doesn't turn back any more
+     */
+    void onTouchEnded() {
+        mIsBack = false;
+    }
+
+    /**
+     * Apply the latest footer offset, called once per frame while pulling.
+     */
+    void onPullFrame() {
+        if (mFooterSettler.computeOffset()) {
+            final int padding = mFooterSettler.getCurrent();
+            if (mFooterSettler.isFinished()) {
+                mHost.setPullOffset(0);
+                mFooterView.setPadding(0, 0, 0, padding);
+            } else {
+                if (mTranslatePull) {
+                    mHost.setPullOffset(-(padding + mFooterView.mViewHeight));
+                } else {
+                    mFooterView.setPadding(0, 0, 0, padding);
+                }
+                mFrameScheduler.schedule();
+            }
+        }
+        if (mFooterPending) {
+            final int state = mEngine.getState();
+            final boolean pulling = state == PULL_TO_LOAD || state == RELEASE_TO_LOAD;
+            if (pulling && mTranslatePull) {
+                // Keep the layout, move the content up to show the footer
+                mHost.setPullOffset(-(mPendingFooterPadding + mFooterView.mViewHeight));
+                if (state != mFooterViewState) {
+                    updateFooterViewByState(-mFooterView.mViewHeight);
+                } else {
+                    mFooterPending = false;
+                }
+                return;
+            }
+            mHost.setPullOffset(0);
+            if (pulling && mScrollMetrics.getFirstVisibleItem() > 0) {
+                // The footer grows below the bottom edge, keep the list at the footer while pulling.
+                mListView.setSelection(mScrollMetrics.getTotalItemCount());
+            }
+            updateFooterViewByState(mPendingFooterPadding);
+        }
+    }
+
+    /**
+     * The list is detached from the window, the results can't be shown any more
+     */
+    void onDetached() {
+        cancelLoad();
+        mFooterSettler.finish();
+    }
+
+    /**
+     * Update the footer to the state, and animate the padding from the released position.
+     *
+     * @param distance      the pull distance
+     * @param paddingBottom the padding to settle to
+     */
+    private void settleFooter(int distance, int paddingBottom) {
+        if (!mEngine.isReleased() || distance <= 0) {
+            postFooterUpdate(paddingBottom);
+            return;
+        }
+        final int from = distance - mFooterView.mViewHeight;
+        // The state views change now, the padding(the offset in translate mode) is animated.
+        updateFooterViewByState(mTranslatePull ? -mFooterView.mViewHeight : from);
+        mFooterSettler.start(from, paddingBottom, mEngine.getReleasePullVelocity());
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Keep the footer padding and update the footer on the next frame
+     *
+     * @param paddingBottom
+     */
+    private void postFooterUpdate(int paddingBottom) {
+        if (mFooterSettler.abort()) {
+            mHost.setPullOffset(0);
+        }
+        mPendingFooterPadding = paddingBottom;
+        mFooterPending = true;
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Update footer view by state
+     *
+     * @param paddingBottom
+     */
+    void updateFooterViewByState(int paddingBottom) {
+        // Anything waiting for the next frame is out of date now
+        mFooterPending = false;
+        if (mFooterSettler.abort()) {
+            mHost.setPullOffset(0);
+        }
+        final int state = mLoadError && mEngine.getState() == IDEL ? LOAD_ERROR : mEngine.getState();
+        mFooterViewState = state;
+        switch (state) {
+            case RELEASE_TO_LOAD:
+                mFooterView.setArrowVisibility(View.VISIBLE);
+                mFooterView.setProgressVisibility(View.GONE);
+                mFooterView.startArrowAnimation(mDownToUpAnimation);
+                mFooterView.setTitleText(R.string.pull_view_release_to_load);
+                break;
+            case PULL_TO_LOAD:
+                mFooterView.setArrowVisibility(View.VISIBLE);
+                mFooterView.setProgressVisibility(View.GONE);
+
+                if (mIsBack) {
+                    mIsBack = false;
+                    mFooterView.startArrowAnimation(mUpToDownAnimation);
+                }
+                mFooterView.setTitleText(R.string.pull_view_pull_to_load);
+                break;
+            case LOADING:
+                mFooterView.setArrowVisibility(View.GONE);
+                mFooterView.setProgressVisibility(View.VISIBLE);
+                mFooterView.startArrowAnimation(null);
+                mFooterView.setTitleText(R.string.pull_view_loading);
+                break;
+            case LOAD_ERROR:
+                mFooterView.setArrowVisibility(View.GONE);
+                mFooterView.setProgressVisibility(View.GONE);
+                mFooterView.startArrowAnimation(null);
+                mFooterView.setTitleText(R.string.pull_view_load_failed);
+                break;
+            case IDEL:
+                mFooterView.setProgressVisibility(View.GONE);
+                mFooterView.startArrowAnimation(null);
+                mFooterView.setTitleText(R.string.pull_view_pull_to_load);
+                break;
+            default:
+                break;
+        }
+        // Tap to retry
+        mFooterView.setClickable(state == LOAD_ERROR);
+        mFooterView.setVisibility(mEnableLoadMore ? View.VISIBLE : View.INVISIBLE);
+        mFooterView.setPadding(0, 0, 0, paddingBottom);
+    }
+
+    /**
+     * Show loading view on the footer
+     *
+     * @param text
+     */
+    void showFooterLoading(CharSequence text) {
+        prepareFooterLoading();
+        mFooterView.setTitleText(text);
+    }
+
+    /**
+     * Show loading view on the footer
+     *
+     * @param resId
+     */
+    void showFooterLoading(int resId) {
+        prepareFooterLoading();
+        mFooterView.setTitleText(resId);
+    }
+
+    private void prepareFooterLoading() {
+        mEngine.setState(LOADING);
+        mFooterPending = false;
+        if (mFooterSettler.abort()) {
+            mHost.setPullOffset(0);
+        }
+        mFooterView.setPadding(0, 0, 0, 0);
+        mFooterView.setArrowVisibility(View.GONE);
+        mFooterView.setProgressVisibility(View.VISIBLE);
+        mFooterView.setTitileVisibility(View.VISIBLE);
+        mFooterView.startArrowAnimation(null);
+        mFooterViewState = LOADING;
+        mFooterView.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Do load more operation.
+     */
+    void loadMore() {
+        if (null == mLoadMoreListener || mEngine.getState() == LOADING) {
+            return;
+        }
+        mRefreshing = false;
+        mEngine.setState(LOADING, PullGestureEngine.EDGE_BOTTOM);
+        mLoadSignal = new CancellationSignal();
+        mLoadError = false;
+        mLoadRetry.onLoadStarted();
+        mLoadMoreTrigger.onLoadStarted(SystemClock.uptimeMillis());
+        mLoadMoreListener.onLoadMore();
+    }
+
+    /**
+     * Do refresh operation.
+     */
+    void refresh() {
+        if (null == mRefreshListener || mRefreshing) {
+            return;
+        }
+        supersedeLoadMore();
+        mRefreshing = true;
+        // The loads started before are out of date
+        mGeneration++;
+        cancelLoadPrevious();
+        mLoadSignal = new CancellationSignal();
+        mLoadRetry.onLoadStarted();
+        mEngine.setState(LOADING);
+        mRefreshListener.onRefresh();
+    }
+
+    /**
+     * A refresh supersedes the load more going on, the page loaded would follow the old list.
+     */
+    private void supersedeLoadMore() {
+        final CancellationSignal signal = mLoadSignal;
+        if (null == signal) {
+            return;
+        }
+        // The completions not applied yet are for the load more
+        mCompletion.cancel();
+        // So is the retry waiting, the refresh starts counting its own failures
+        mLoadRetry.onLoadCompleted();
+        mLoadMoreTrigger.onLoadCanceled();
+        mLoadSignal = null;
+        signal.cancel();
+        mFooterView.setPadding(0, 0, 0, -mFooterView.mViewHeight);
+    }
+
+    /**
+     * Do load previous operation, doesn't change the state of the header or the footer.
+     */
+    void loadPrevious() {
+        if (null == mLoadPreviousListener || null != mLoadPreviousSignal) {
+            return;
+        }
+        mLoadPreviousSignal = new CancellationSignal();
+        mLoadPreviousListener.onLoadPrevious();
+    }
+
+    private void cancelLoadPrevious() {
+        mLoadPreviousRetry.onLoadCompleted();
+        mLoadPreviousFailed = false;
+        mLoadPreviousGivenUp = false;
+        final CancellationSignal signal = mLoadPreviousSignal;
+        if (null != signal) {
+            mLoadPreviousSignal = null;
+            signal.cancel();
+        }
+    }
+
+    /**
+     * Load previous complete, the first visible item is moved down by the inserted items,
+     * so it stays where it is on the screen.
+     *
+     * @param count           the items inserted before the old ones
+     * @param canLoadPrevious there is a page before the inserted one
+     */
+    void loadPreviousCompleted(int count, boolean canLoadPrevious) {
+        mLoadPreviousSignal = null;
+        mLoadPreviousRetry.onLoadCompleted();
+        mLoadPreviousFailed = false;
+        mLoadPreviousGivenUp = false;
+        this.mEnableLoadPrevious = null != mLoadPreviousListener && canLoadPrevious;
+        if (count <= 0) {
+            return;
+        }
+        final int headers = mListView.getHeaderViewsCount();
+        final int first = mListView.getFirstVisiblePosition();
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            if (first + i >= headers) {
+                // The children are still where they were before the items were inserted
+                mListView.setSelectionFromTop(first + i + count,
+                        mListView.getChildAt(i).getTop() - mListView.getPaddingTop());
+                return;
+            }
+        }
+    }
+
+    boolean loadPreviousCompleted(int generation, int count, boolean canLoadPrevious) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        loadPreviousCompleted(count, canLoadPrevious);
+        return true;
+    }
+
+    /**
+     * Refresh data complete, the list updates the header after it
+     */
+    void refreshCompleted() {
+        mEngine.setState(IDEL);
+        mEngine.reset();
+        mRefreshing = false;
+        mLoadSignal = null;
+        mLoadRetry.onLoadCompleted();
+        if (mLoadError || mLoadingFirstPage) {
+            // The refreshed list can load more again, the footer doesn't show the first page loading
+            mLoadError = false;
+            mLoadingFirstPage = false;
+            updateFooterViewByState(-mFooterView.mViewHeight);
+        }
+    }
+
+    boolean refreshCompleted(int generation) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        mHost.refreshCompleted();
+        return true;
+    }
+
+    /**
+     * Load more complete
+     *
+     * @param canLoadmore
+     */
+    void loadMoreCompleted(boolean canLoadmore) {
+        mLoadMoreTrigger.onLoadCompleted(SystemClock.uptimeMillis());
+        mEngine.setState(IDEL);
+        mEngine.reset();
+        mRefreshing = false;
+        mLoadSignal = null;
+        mLoadRetry.onLoadCompleted();
+        mLoadingFirstPage = false;
+        this.mEnableLoadMore = null != mLoadMoreListener && canLoadmore;
+        updateFooterViewByState(-mFooterView.mViewHeight);
+    }
+
+    boolean loadMoreCompleted(int generation, boolean canLoadmore) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        mHost.loadMoreCompleted(canLoadmore);
+        return true;
+    }
+
+    /**
+     * Sets whether it can load more, without completing a load or resetting the gesture going on
+     *
+     * @param canLoadMore
+     */
+    void setCanLoadMore(boolean canLoadMore) {
+        this.mEnableLoadMore = null != mLoadMoreListener && canLoadMore;
+        if (mEngine.getState() == IDEL) {
+            updateFooterViewByState(-mFooterView.mViewHeight);
+        } else {
+            // The footer follows the pull, only shown or hidden
+            mFooterView.setVisibility(mEnableLoadMore ? View.VISIBLE : View.INVISIBLE);
+        }
+    }
+
+    void postRefreshCompleted() {
+        mCompletion.postRefreshCompleted();
+    }
+
+    void postLoadMoreCompleted(boolean canLoadmore) {
+        mCompletion.postLoadMoreCompleted(canLoadmore);
+    }
+
+    /**
+     * The load previous going on failed, retried later as the retry policy says.
+     * When given up, it's loaded again when the list scrolls to the top after the scroll stops.
+     */
+    void loadPreviousFailed() {
+        if (null == mLoadPreviousSignal) {
+            return;
+        }
+        mLoadPreviousSignal = null;
+        // Not loaded by every scroll until then
+        mLoadPreviousFailed = true;
+        mLoadPreviousGivenUp = !mLoadPreviousRetry.onLoadFailed();
+    }
+
+    boolean loadPreviousFailed(int generation) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        loadPreviousFailed();
+        return true;
+    }
+
+    /**
+     * Cancel the refresh or load more going on, and the load previous, the list goes back to idle.
+     */
+    void cancelLoad() {
+        // The completions not applied yet are for this load
+        mCompletion.cancel();
+        final CancellationSignal signal = mLoadSignal;
+        if (null == signal) {
+            if (null != mLoadPreviousSignal) {
+                mGeneration++;
+            }
+            // The retry waiting too
+            cancelLoadPrevious();
+            return;
+        }
+        mGeneration++;
+        cancelLoadPrevious();
+        if (mRefreshing) {
+            mHost.refreshCompleted();
+        } else {
+            mLoadMoreTrigger.onLoadCanceled();
+            mHost.loadMoreCompleted(mEnableLoadMore);
+        }
+        signal.cancel();
+    }
+
+    /**
+     * The refresh or load more going on failed, retried later or given up
+     */
+    void loadFailed() {
+        if (null == mLoadSignal) {
+            return;
+        }
+        if (!mLoadRetry.onLoadFailed()) {
+            giveUpLoad();
+        }
+    }
+
+    boolean loadFailed(int generation) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        loadFailed();
+        return true;
+    }
+
+    /**
+     * Load the first page with the footer showing loading
+     */
+    void loadFirstPage() {
+        if (mEngine.getState() == LOADING) {
+            return;
+        }
+        mLoadError = false;
+        mHost.refresh();
+        if (!mRefreshing) {
+            // Not started, or completed already
+            return;
+        }
+        mLoadingFirstPage = true;
+        showFooterLoading(R.string.pull_view_loading);
+    }
+
+    private void onLoadTimeout() {
+        final CancellationSignal signal = mLoadSignal;
+        if (null == signal) {
+            return;
+        }
+        // The completion of the timed out load is ignored, so is the one of the load previous, load it again later
+        mGeneration++;
+        cancelLoadPrevious();
+        signal.cancel();
+        loadFailed();
+    }
+
+    private void retryLoad() {
+        if (mRefreshing ? null == mRefreshListener : null == mLoadMoreListener) {
+            giveUpLoad();
+            return;
+        }
+        mLoadSignal = new CancellationSignal();
+        mLoadRetry.onLoadStarted();
+        if (mRefreshing) {
+            mGeneration++;
+            cancelLoadPrevious();
+            mRefreshListener.onRefresh();
+        } else {
+            mLoadMoreTrigger.onLoadStarted(SystemClock.uptimeMillis());
+            mLoadMoreListener.onLoadMore();
+        }
+    }
+
+    private void giveUpLoad() {
+        if (mRefreshing) {
+            final boolean firstPage = mLoadingFirstPage;
+            mHost.refreshCompleted();
+            if (firstPage) {
+                // Nothing is shown, the footer shows the error, tap it to load the first page again
+                mLoadingFirstPage = true;
+                mLoadError = true;
+                updateFooterViewByState(-mFooterView.mViewHeight);
+            }
+            return;
+        }
+        mLoadMoreTrigger.onLoadCanceled();
+        mLoadError = true;
+        mHost.loadMoreCompleted(mEnableLoadMore);
+    }
+
+    /**
+     * The list, its refresh, load more and their completions can be overridden
+     */
+    interface Host {
+
+        /**
+         * Do refresh operation of the list
+         */
+        void refresh();
+
+        /**
+         * Do load more operation of the list
+         */
+        void loadMore();
+
+        /**
+         * Refresh data complete, the list calls {@link PullLoadController#refreshCompleted()}
+         */
+        void refreshCompleted();
+
+        /**
+         * Load more complete, the list calls {@link PullLoadController#loadMoreCompleted(boolean)}
+         *
+         * @param canLoadMore
+         */
+        void loadMoreCompleted(boolean canLoadMore);
+
+        /**
+         * Sets the drawing offset of the content
+         *
+         * @param offset positive moves the content down
+         */
+        void setPullOffset(int offset);
+    }
+}
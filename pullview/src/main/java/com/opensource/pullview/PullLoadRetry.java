@@ -0,0 +1,140 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Usage Times out the refresh or load more of a widget, and retries it when it failed.<br>
+ * <p>The widget tells when a load started, completed or failed, the callback is called on the main thread
+ * when the load took longer than the timeout, or when it is time to retry.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullLoadRetry {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Callback mCallback;
+
+    private RetryPolicy mPolicy = new RetryPolicy();
+    private long mTimeout = 0;
+    private int mRetry = 0;
+
+    private final Runnable mTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mCallback.onLoadTimeout();
+        }
+    };
+
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mCallback.onRetry();
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param callback
+     */
+    PullLoadRetry(Callback callback) {
+        this.mCallback = callback;
+    }
+
+    /**
+     * Sets the timeout of a load
+     *
+     * @param timeout milliseconds, 0 to wait forever
+     */
+    void setTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout can not be negative, but is " + timeout);
+        }
+        this.mTimeout = timeout;
+    }
+
+    /**
+     * Sets the retry policy
+     *
+     * @param policy null to never retry
+     */
+    void setPolicy(RetryPolicy policy) {
+        this.mPolicy = policy;
+    }
+
+    /**
+     * A load started, or retried
+     */
+    void onLoadStarted() {
+        mHandler.removeCallbacks(mTimeoutRunnable);
+        if (mTimeout > 0) {
+            mHandler.postDelayed(mTimeoutRunnable, mTimeout);
+        }
+    }
+
+    /**
+     * The load completed, the next failure is the first one again
+     */
+    void onLoadCompleted() {
+        cancel();
+        mRetry = 0;
+    }
+
+    /**
+     * The load failed, or timed out
+     *
+     * @return true if a retry is scheduled, false if given up
+     */
+    boolean onLoadFailed() {
+        cancel();
+        if (null == mPolicy || !mPolicy.shouldRetry(mRetry)) {
+            mRetry = 0;
+            return false;
+        }
+        mHandler.postDelayed(mRetryRunnable, mPolicy.getDelay(mRetry));
+        mRetry++;
+        return true;
+    }
+
+    /**
+     * Remove the timeout and the retry waiting
+     */
+    void cancel() {
+        mHandler.removeCallbacks(mTimeoutRunnable);
+        mHandler.removeCallbacks(mRetryRunnable);
+    }
+
+    /**
+     * Called on the main thread
+     */
+    interface Callback {
+
+        /**
+         * The load didn't complete in time
+         */
+        void onLoadTimeout();
+
+        /**
+         * Load again
+         */
+        void onRetry();
+    }
+}
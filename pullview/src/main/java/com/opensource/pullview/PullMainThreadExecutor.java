@@ -0,0 +1,50 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Usage Runs the tasks on the main thread, in the order they were posted.<br>
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullMainThreadExecutor implements Executor {
+
+    private static PullMainThreadExecutor sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private PullMainThreadExecutor() {
+    }
+
+    static synchronized PullMainThreadExecutor getInstance() {
+        if (null == sInstance) {
+            sInstance = new PullMainThreadExecutor();
+        }
+        return sInstance;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        mHandler.post(command);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+
+/**
+ * Usage Dispatches the pull gesture to the nested scrolling parent of the widget.<br>
+ * <p>The list/scroll view dispatches its own scroll on Lollipop and later, but it doesn't see the moves
+ * while pulling, they are dispatched here: the parent takes its share first, the pull gets the rest.<br>
+ * <p>Works only when nested scrolling is enabled with {@link View#setNestedScrollingEnabled(boolean)}
+ * (or android:nestedScrollingEnabled), does nothing before Lollipop.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullNestedScroll {
+
+    private final View mView;
+    private final int[] mConsumed = new int[2];
+    private final int[] mOffset = new int[2];
+
+    private boolean mParentScrolled = false;
+
+    /**
+     * Constructor
+     *
+     * @param view the pull widget
+     */
+    PullNestedScroll(View view) {
+        this.mView = view;
+    }
+
+    /**
+     * Whether nested scrolling is enabled on the widget
+     *
+     * @return
+     */
+    boolean isEnabled() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && NestedScrollCompat.isEnabled(mView);
+    }
+
+    /**
+     * Offer the move to the parent before pulling
+     *
+     * @param dy the move, positive when the finger moves up, same as the scroll
+     * @return the part the parent consumed
+     */
+    int preScroll(int dy) {
+        mConsumed[1] = 0;
+        mOffset[1] = 0;
+        if (dy == 0 || !isEnabled()) {
+            return 0;
+        }
+        return NestedScrollCompat.preScroll(mView, dy, mConsumed, mOffset) ? mConsumed[1] : 0;
+    }
+
+    /**
+     * Gets how far the widget moved in the window in the last {@link #preScroll(int)}
+     *
+     * @return
+     */
+    int getOffset() {
+        return mOffset[1];
+    }
+
+    /**
+     * Offer the release velocity to the parent, and tell it the pull took the rest.
+     *
+     * @param velocity pixels per second, positive when the finger moves down
+     * @return true if the parent consumed the fling
+     */
+    boolean fling(float velocity) {
+        if (!isEnabled()) {
+            return false;
+        }
+        // Scroll velocity is against the finger
+        if (NestedScrollCompat.preFling(mView, -velocity)) {
+            return true;
+        }
+        NestedScrollCompat.fling(mView, -velocity);
+        return false;
+    }
+
+    /**
+     * Stop the nested scroll, the widget doesn't get ACTION_UP after a pull.
+     */
+    void stop() {
+        if (isEnabled()) {
+            NestedScrollCompat.stop(mView);
+        }
+    }
+
+    /**
+     * Record a dispatch of the widget, call it from dispatchNestedPreScroll() and dispatchNestedScroll()
+     *
+     * @param consumed       the consumed array of the dispatch, can be null
+     * @param offsetInWindow the offset array of the dispatch, can be null
+     */
+    void onDispatched(int[] consumed, int[] offsetInWindow) {
+        if ((null != consumed && consumed[1] != 0) || (null != offsetInWindow && offsetInWindow[1] != 0)) {
+            mParentScrolled = true;
+        }
+    }
+
+    /**
+     * Whether the parent took any of the scroll since last call, and clear it.
+     *
+     * @return
+     */
+    boolean takeParentScrolled() {
+        final boolean scrolled = mParentScrolled;
+        mParentScrolled = false;
+        return scrolled;
+    }
+
+    /**
+     * Keeps the Lollipop methods out of the class verification on old devices.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static class NestedScrollCompat {
+
+        static boolean isEnabled(View view) {
+            return view.isNestedScrollingEnabled();
+        }
+
+        static boolean preScroll(View view, int dy, int[] consumed, int[] offset) {
+            if (!view.hasNestedScrollingParent()) {
+                // The list/scroll view stopped its nested scroll when it was canceled for the pull
+                view.startNestedScroll(View.SCROLL_AXIS_VERTICAL);
+            }
+            return view.dispatchNestedPreScroll(0, dy, consumed, offset);
+        }
+
+        static boolean preFling(View view, float velocityY) {
+            return view.dispatchNestedPreFling(0, velocityY);
+        }
+
+        static void fling(View view, float velocityY) {
+            view.dispatchNestedFling(0, velocityY, true);
+        }
+
+        static void stop(View view) {
+            view.stopNestedScroll();
+        }
+    }
+}
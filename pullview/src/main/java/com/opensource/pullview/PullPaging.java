@@ -0,0 +1,198 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import com.opensource.pullview.paging.Page;
+import com.opensource.pullview.paging.PagedLoader;
+import com.opensource.pullview.paging.PagedSource;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Usage Drives a {@link PagedLoader} from the refresh and load more actions of a widget.<br>
+ * <p>The pages are handed to the {@link OnPageLoadListener} on the main thread,
+ * then the refresh or load more is completed on the widget.<br>
+ * <p>The load is canceled with the {@link CancellationSignal} of the widget, a load previous with its own one.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullPaging<Key, Item> implements PagedLoader.Callback<Key, Item>, OnRefreshListener, OnLoadMoreListener,
+        OnLoadPreviousListener, CancellationSignal.OnCancelListener {
+
+    private final PagedLoader<Key, Item> mLoader;
+    private final OnPageLoadListener<Item> mListener;
+    private final Target mTarget;
+
+    /**
+     * The load generation of the widget when the refresh or load more started
+     */
+    private int mGeneration;
+    /**
+     * The load generation of the widget when the load previous started
+     */
+    private int mPreviousGeneration;
+    /**
+     * Cancels only the load previous, the signal of the widget for the refresh or load more cancels only them
+     */
+    private final CancellationSignal.OnCancelListener mPreviousCancelListener =
+            new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    mLoader.cancelPrevious();
+                }
+            };
+
+    /**
+     * Constructor
+     *
+     * @param source
+     * @param executor runs the loads
+     * @param listener
+     * @param target   the widget
+     */
+    PullPaging(PagedSource<Key, Item> source, Executor executor, OnPageLoadListener<Item> listener, Target target) {
+        if (null == listener) {
+            throw new IllegalArgumentException("listener can not be null");
+        }
+        this.mLoader = new PagedLoader<Key, Item>(source, executor, PullMainThreadExecutor.getInstance(), this);
+        this.mListener = listener;
+        this.mTarget = target;
+    }
+
+    PagedLoader<Key, Item> getLoader() {
+        return mLoader;
+    }
+
+    @Override
+    public void onRefresh() {
+        onLoadStarted();
+        // A load more going on is dropped
+        mLoader.refresh();
+    }
+
+    @Override
+    public void onLoadMore() {
+        onLoadStarted();
+        if (!mLoader.loadMore() && !mLoader.isLoading()) {
+            mTarget.loadMoreCompleted(mGeneration, false);
+        }
+    }
+
+    @Override
+    public void onLoadPrevious() {
+        mPreviousGeneration = mTarget.getLoadGeneration();
+        final CancellationSignal signal = mTarget.getLoadPreviousSignal();
+        if (null != signal) {
+            signal.setOnCancelListener(mPreviousCancelListener);
+        }
+        if (!mLoader.loadPrevious() && !mLoader.isLoadingPrevious()) {
+            mTarget.loadPreviousCompleted(mPreviousGeneration, 0, mLoader.hasPrevious());
+        }
+    }
+
+    @Override
+    public void onCancel() {
+        mLoader.cancel();
+    }
+
+    private void onLoadStarted() {
+        mGeneration = mTarget.getLoadGeneration();
+        final CancellationSignal signal = mTarget.getLoadSignal();
+        if (null != signal) {
+            signal.setOnCancelListener(this);
+        }
+    }
+
+    @Override
+    public void onPageLoaded(int type, Page<Key, Item> page) {
+        final boolean refresh = type == PagedLoader.LOAD_REFRESH;
+        if (type == PagedLoader.LOAD_PREVIOUS) {
+            if (mPreviousGeneration == mTarget.getLoadGeneration()) {
+                mListener.onPreviousPageLoaded(page.getItems());
+                mTarget.loadPreviousCompleted(mPreviousGeneration, page.getItems().size(), page.hasPrevious());
+            }
+            return;
+        }
+        if (mGeneration != mTarget.getLoadGeneration()) {
+            // The widget was refreshed by someone else
+            return;
+        }
+        if (type == PagedLoader.LOAD_CACHED || type == PagedLoader.LOAD_CACHED_MORE) {
+            // Shown while the widget keeps refreshing
+            mListener.onPageLoaded(page.getItems(), type == PagedLoader.LOAD_CACHED);
+            if (!mLoader.isLoading()) {
+                // Delivered again after the first page was revalidated, the refresh is completed
+                mTarget.setCanLoadMore(mGeneration, page.hasNext());
+            }
+            return;
+        }
+        mListener.onPageLoaded(page.getItems(), refresh);
+        if (refresh) {
+            mTarget.refreshCompleted(mGeneration);
+            // A list opened in the middle can load the pages before
+            mTarget.loadPreviousCompleted(mGeneration, 0, page.hasPrevious());
+            // The refresh reset the gesture already, a pull started since then goes on
+            mTarget.setCanLoadMore(mGeneration, page.hasNext());
+            return;
+        }
+        mTarget.loadMoreCompleted(mGeneration, page.hasNext());
+    }
+
+    @Override
+    public void onLoadFailed(int type, Throwable error) {
+        final boolean refresh = type == PagedLoader.LOAD_REFRESH;
+        if (type == PagedLoader.LOAD_PREVIOUS) {
+            if (mPreviousGeneration == mTarget.getLoadGeneration()) {
+                mListener.onLoadFailed(error, false);
+                // Retried by the widget, or loaded again when the list scrolls after given up
+                mTarget.loadPreviousFailed(mPreviousGeneration);
+            }
+            return;
+        }
+        if (mGeneration != mTarget.getLoadGeneration()) {
+            return;
+        }
+        mListener.onLoadFailed(error, refresh);
+        // Retried by the widget, or completed when given up
+        mTarget.loadFailed(mGeneration);
+    }
+
+    /**
+     * The widget completing the actions
+     */
+    interface Target {
+
+        int getLoadGeneration();
+
+        CancellationSignal getLoadSignal();
+
+        boolean refreshCompleted(int generation);
+
+        boolean loadMoreCompleted(int generation, boolean canLoadMore);
+
+        boolean setCanLoadMore(int generation, boolean canLoadMore);
+
+        boolean loadFailed(int generation);
+
+        CancellationSignal getLoadPreviousSignal();
+
+        boolean loadPreviousCompleted(int generation, int count, boolean canLoadPrevious);
+
+        boolean loadPreviousFailed(int generation);
+    }
+}
@@ -20,8 +20,8 @@ package com.opensource.pullview;
 import android.content.Context;
 import android.util.AttributeSet;
 import android.view.Gravity;
-import android.view.MotionEvent;
 import android.view.View;
+import android.view.animation.Interpolator;
 
 import com.opensource.pullview.utils.DateUtil;
 
@@ -62,108 +62,135 @@ public class PullScrollView extends BasePullScrollView {
         initView(context);
     }
 
-    private int mStartY = 0;
-    private boolean mRecording = false;
     private boolean mIsBack = false;
 
+    private boolean mHeaderPending = false;
+    private int mPendingHeaderPadding = 0;
+    private PullSettler mHeaderSettler;
+
+    @Override
+    public boolean canPull(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            return mScrollMetrics.isAtTop() && (mEnableOverScroll || mEnablePullRefresh);
+        }
+        return super.canPull(edge);
+    }
+
+    @Override
+    public int getPullThreshold(int edge) {
+        if (edge == PullGestureEngine.EDGE_TOP) {
+            return mHeaderView.mViewHeight;
+        }
+        return super.getPullThreshold(edge);
+    }
+
     @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                mStartY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mTopPosition == 0;
+    public void onPullChanged(int edge, int state, int lastState, int distance) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            super.onPullChanged(edge, state, lastState, distance);
+            return;
+        }
+        switch (state) {
+            case RELEASE_TO_LOAD:
+            case PULL_TO_LOAD:
+                if (state == RELEASE_TO_LOAD && lastState == PULL_TO_LOAD) {
+                    mIsBack = true;
                 }
+                postHeaderUpdate(distance - mHeaderView.mViewHeight);
                 break;
-            case MotionEvent.ACTION_MOVE:
-                int tempY = (int) event.getY();
-                if (!mRecording) {
-                    mRecording = mTopPosition == 0;
-                    mStartY = mRecording ? tempY : mStartY;
-                }
-                if (mRecording && (mEnableOverScroll || mEnablePullRefresh)) {
-                    int moveY = tempY - mStartY;
-                    int scrollY = moveY / OFFSET_RATIO;
-                    if (mState != LOADING) {
-                        // Ensure that the process of setting padding, current position has always been at the header,
-                        // or if when the list exceeds the screen, then, when the push, the list will scroll at the same time
-                        switch (mState) {
-                            case RELEASE_TO_LOAD: // Release to load data
-                                // Slide up, header part was covered, but not all be covered(Pull up to cancel)
-                                if (scrollY > 0) {
-                                    scrollTo(0, 0);
-                                }
-                                if (moveY > 0 && (scrollY < mHeaderView.mViewHeight)) {
-                                    mState = PULL_TO_LOAD;
-                                } else if (moveY <= 0) {
-                                    // Slide to the top
-                                    mState = IDEL;
-                                }
-                                updateHeaderViewByState(scrollY - mHeaderView.mViewHeight);
-                                break;
-                            case PULL_TO_LOAD:
-                                // Pull down to the state can enter RELEASE_TO_REFRESH
-                                if (scrollY > 0) {
-                                    scrollTo(0, 0);
-                                }
-                                if (moveY <= 0) {
-                                    mState = IDEL;
-                                } else if (scrollY >= mHeaderView.mViewHeight) {
-                                    mState = RELEASE_TO_LOAD;
-                                    mIsBack = true;
-                                }
-                                updateHeaderViewByState(scrollY - mHeaderView.mViewHeight);
-                                break;
-                            case IDEL:
-                                if (moveY > 0) {
-                                    mState = PULL_TO_LOAD;
-                                }
-                                updateHeaderViewByState(-mHeaderView.mViewHeight);
-                                break;
-                            default:
-                                break;
-                        }
-                    }
+            case LOADING:
+                if (lastState != LOADING) {
+                    settleHeader(distance, 0);
                 }
                 break;
-            case MotionEvent.ACTION_UP:
-                if (mRecording) {
-                    switch (mState) {
-                        case IDEL:
-                            //Do nothing.
-                            break;
-                        case PULL_TO_LOAD:
-                            //Pull to refresh.
-                            mState = IDEL;
-                            updateHeaderViewByState(-mHeaderView.mViewHeight);
-                            break;
-                        case RELEASE_TO_LOAD:
-                            if (mEnablePullRefresh) {
-                                //Release to refresh.
-                                refresh();
-                                mState = LOADING;
-                                updateHeaderViewByState(0);
-                            } else {
-                                mState = IDEL;
-                                updateHeaderViewByState(-mHeaderView.mViewHeight);
-                            }
-                            break;
-                        default:
-                            break;
-                    }
-                }
-                mRecording = false;
-                mIsBack = false;
+            case IDEL:
+                settleHeader(distance, -mHeaderView.mViewHeight);
                 break;
             default:
                 break;
         }
-        return super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onPullFrame() {
+        super.onPullFrame();
+        if (mHeaderSettler.computeOffset()) {
+            mHeaderView.setPadding(0, mHeaderSettler.getCurrent(), 0, 0);
+            if (!mHeaderSettler.isFinished()) {
+                mFrameScheduler.schedule();
+            }
+        }
+        if (mHeaderPending) {
+            final int state = mEngine.getState();
+            if ((state == PULL_TO_LOAD || state == RELEASE_TO_LOAD) && mPendingHeaderPadding > -mHeaderView.mViewHeight) {
+                // Ensure that the process of setting padding, current position has always been at the header
+                scrollTo(0, 0);
+            }
+            updateHeaderViewByState(mPendingHeaderPadding);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mHeaderSettler.finish();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void setSettleInterpolator(Interpolator interpolator) {
+        super.setSettleInterpolator(interpolator);
+        mHeaderSettler.setInterpolator(interpolator);
+    }
+
+    /**
+     * Update the header to the state, and animate the padding from the released position.
+     *
+     * @param distance   the pull distance
+     * @param paddingTop the padding to settle to
+     */
+    private void settleHeader(int distance, int paddingTop) {
+        if (!mEngine.isReleased() || distance <= 0) {
+            postHeaderUpdate(paddingTop);
+            return;
+        }
+        final int from = distance - mHeaderView.mViewHeight;
+        // The state views change now, the padding is animated.
+        updateHeaderViewByState(from);
+        mHeaderSettler.start(from, paddingTop, mEngine.getReleasePullVelocity());
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Keep the header padding and update the header on the next frame
+     *
+     * @param paddingTop
+     */
+    private void postHeaderUpdate(int paddingTop) {
+        mHeaderSettler.abort();
+        mPendingHeaderPadding = paddingTop;
+        mHeaderPending = true;
+        mFrameScheduler.schedule();
+    }
+
+    @Override
+    public boolean onPullRelease(int edge) {
+        if (edge != PullGestureEngine.EDGE_TOP) {
+            return super.onPullRelease(edge);
+        }
+        if (mEnablePullRefresh) {
+            //Release to refresh.
+            refresh();
+            return true;
+        }
+        return false;
     }
 
     @Override
     protected void updateHeaderViewByState(int paddingTop) {
-        switch (mState) {
+        // Anything waiting for the next frame is out of date now
+        mHeaderPending = false;
+        mHeaderSettler.abort();
+        switch (mEngine.getState()) {
             case RELEASE_TO_LOAD:
                 mHeaderView.setArrowVisibility(View.VISIBLE);
                 mHeaderView.setProgressVisibility(View.GONE);
@@ -211,10 +238,11 @@ public class PullScrollView extends BasePullScrollView {
 
     @Override
     protected void refresh() {
-        if (null == mOnRefreshListener || mState == LOADING) {
+        if (null == mOnRefreshListener || mEngine.getState() == LOADING) {
             return;
         }
         mRefreshing = true;
+        mLoadSignal = new CancellationSignal();
         mOnRefreshListener.onRefresh();
     }
 
@@ -222,7 +250,6 @@ public class PullScrollView extends BasePullScrollView {
     @Override
     public void refreshCompleted() {
         super.refreshCompleted();
-        mRecording = false;
         mIsBack = false;
         updateHeaderViewByState(-mHeaderView.mViewHeight);
         mLastRefreshTime = DateUtil.getSystemDate("yyyy-MM-dd HH:mm:ss");
@@ -271,7 +298,10 @@ public class PullScrollView extends BasePullScrollView {
         mHeaderView.setGravity(Gravity.BOTTOM);
         addHeaderView(mHeaderView);
 
-        mState = IDEL;
+        mHeaderSettler = new PullSettler(context);
+        mHeaderSettler.setInterpolator(mSettleInterpolator);
+
+        mEngine.setState(IDEL);
         updateHeaderViewByState(-mHeaderView.mViewHeight);
 
         mLastRefreshTime = DateUtil.getSystemDate(getResources().getString(R.string.pull_view_date_format));
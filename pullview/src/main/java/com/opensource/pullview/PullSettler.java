@@ -0,0 +1,129 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.content.Context;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.widget.Scroller;
+
+/**
+ * Usage Animates the header/footer from the released position to the loading position or to hidden.<br>
+ * <p>Driven by the frame callback of the widget, call {@link #computeOffset()} once per frame.
+ * The duration follows the release velocity when the finger was moving toward the target.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullSettler {
+
+    /**
+     * The duration when released without velocity toward the target
+     */
+    private static final int SETTLE_DURATION = 300;
+    private static final int MIN_SETTLE_DURATION = 100;
+
+    private final Context mContext;
+    private Scroller mScroller;
+
+    /**
+     * Constructor
+     *
+     * @param context
+     */
+    PullSettler(Context context) {
+        this.mContext = context;
+        this.mScroller = new Scroller(context, new DecelerateInterpolator());
+    }
+
+    /**
+     * Sets the interpolator of the settle animation
+     *
+     * @param interpolator null to use the default one
+     */
+    void setInterpolator(Interpolator interpolator) {
+        mScroller.abortAnimation();
+        mScroller = new Scroller(mContext, null == interpolator ? new DecelerateInterpolator() : interpolator);
+    }
+
+    /**
+     * Start settling
+     *
+     * @param from
+     * @param to
+     * @param velocity the release velocity, in the unit of from/to per second
+     */
+    void start(int from, int to, float velocity) {
+        final int delta = to - from;
+        int duration = SETTLE_DURATION;
+        if (delta != 0 && velocity * delta > 0) {
+            // Keep the speed of the finger, a decelerating animation averages about half of it
+            final int flingDuration = (int) (Math.abs(delta) * 2000f / Math.abs(velocity));
+            duration = Math.max(MIN_SETTLE_DURATION, Math.min(SETTLE_DURATION, flingDuration));
+        }
+        mScroller.startScroll(0, from, 0, delta, duration);
+    }
+
+    /**
+     * Compute the position of this frame
+     *
+     * @return true if the position changed, read it from {@link #getCurrent()}
+     */
+    boolean computeOffset() {
+        return mScroller.computeScrollOffset();
+    }
+
+    /**
+     * Gets the current position
+     *
+     * @return
+     */
+    int getCurrent() {
+        return mScroller.getCurrY();
+    }
+
+    /**
+     * Whether the animation reached the target
+     *
+     * @return
+     */
+    boolean isFinished() {
+        return mScroller.isFinished();
+    }
+
+    /**
+     * Jump to the target, {@link #computeOffset()} returns the target once more.
+     */
+    void finish() {
+        if (!mScroller.isFinished()) {
+            mScroller.startScroll(0, mScroller.getFinalY(), 0, 0, 0);
+        }
+    }
+
+    /**
+     * Stop the animation where it is
+     *
+     * @return true if it was running
+     */
+    boolean abort() {
+        if (mScroller.isFinished()) {
+            return false;
+        }
+        mScroller.forceFinished(true);
+        return true;
+    }
+}
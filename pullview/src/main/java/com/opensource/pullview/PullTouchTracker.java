@@ -0,0 +1,289 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * Usage Feeds the MotionEvents of a widget into its {@link PullGestureEngine}.<br>
+ * <p>An ACTION_MOVE may carry several batched samples when the UI thread is late,
+ * all of them are passed to the engine in time order with their event time.<br>
+ * <p>The release velocity is measured with a {@link VelocityTracker}.<br>
+ * <p>Only the active pointer is tracked, a new finger takes over the gesture, and when the active
+ * finger is lifted one of the others goes on, the pull distance does not jump in either case.<br>
+ * <p>The pull starts after the touch slop, the widget sees it in onInterceptTouchEvent and takes the gesture
+ * from the children, and holds the events back from the list/scroll view itself while pulling.<br>
+ * <p>While pulling, each move is offered to the nested scrolling parent first, the pull gets what is left.
+ * The pull doesn't start while the parent is taking the scroll of the list/scroll view.
+ *
+ * @author yinglovezhuzhu@gmail.com
+ */
+class PullTouchTracker {
+
+    /**
+     * The minimum velocity(dips per second) of a fling to refresh or load more
+     */
+    private static final int FLING_TO_LOAD_VELOCITY = 1000;
+
+    private static final int INVALID_POINTER = -1;
+
+    private final PullGestureEngine mEngine;
+    private final PullNestedScroll mNestedScroll;
+    private final float mMaxVelocity;
+    private final float mFlingToLoadVelocity;
+
+    private VelocityTracker mVelocityTracker;
+    private int mActivePointerId = INVALID_POINTER;
+
+    private boolean mPulling = false;
+    /**
+     * The position of the active pointer in last event, in the coordinate of the widget after the nested scroll
+     */
+    private int mLastY;
+    /**
+     * Added to the positions passed to the engine, the moves taken by the nested scrolling parent
+     * and the moves of the widget in the window
+     */
+    private int mNestedShift;
+
+    /**
+     * Constructor
+     *
+     * @param view   the pull widget
+     * @param engine
+     */
+    PullTouchTracker(View view, PullGestureEngine engine) {
+        final Context context = view.getContext();
+        this.mEngine = engine;
+        this.mNestedScroll = new PullNestedScroll(view);
+        this.mMaxVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
+        this.mFlingToLoadVelocity = FLING_TO_LOAD_VELOCITY * context.getResources().getDisplayMetrics().density;
+        engine.setTouchSlop(ViewConfiguration.get(context).getScaledTouchSlop());
+    }
+
+    /**
+     * Sets whether a fast fling over a shorter distance can refresh or load more.
+     *
+     * @param enable
+     */
+    void setFlingToLoad(boolean enable) {
+        mEngine.setFlingVelocity(enable ? mFlingToLoadVelocity : 0f);
+    }
+
+    /**
+     * Gets the action without the pointer index, MotionEvent#getActionMasked() is not available on API 7.
+     *
+     * @param event
+     * @return
+     */
+    static int getActionMasked(MotionEvent event) {
+        return event.getAction() & MotionEvent.ACTION_MASK;
+    }
+
+    /**
+     * Record a nested scroll dispatch of the widget, call it from dispatchNestedPreScroll() and dispatchNestedScroll()
+     *
+     * @param consumed       can be null
+     * @param offsetInWindow can be null
+     */
+    void onNestedScrollDispatched(int[] consumed, int[] offsetInWindow) {
+        mNestedScroll.onDispatched(consumed, offsetInWindow);
+    }
+
+    /**
+     * Handle the events seen in onInterceptTouchEvent, before a child or the widget itself took the gesture.
+     *
+     * @param event
+     * @return true if the pull started, intercept the gesture then
+     */
+    boolean onInterceptTouchEvent(MotionEvent event) {
+        switch (getActionMasked(event)) {
+            case MotionEvent.ACTION_DOWN:
+                onDown(event);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                return onMove(event);
+            case MotionEvent.ACTION_POINTER_DOWN:
+                onPointerDown(event);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                onPointerUp(event);
+                break;
+            case MotionEvent.ACTION_UP:
+                // A child took the tap
+                onUp(event);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                onCancel();
+                break;
+            default:
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Handle ACTION_DOWN
+     *
+     * @param event
+     */
+    void onDown(MotionEvent event) {
+        if (null == mVelocityTracker) {
+            mVelocityTracker = VelocityTracker.obtain();
+        } else {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(event);
+        mActivePointerId = event.getPointerId(0);
+        mPulling = false;
+        mNestedShift = 0;
+        mLastY = (int) event.getY();
+        mNestedScroll.takeParentScrolled();
+        mEngine.onDown(mLastY, event.getEventTime());
+    }
+
+    /**
+     * Handle ACTION_MOVE
+     *
+     * @param event
+     * @return true if the pull gesture is going on
+     */
+    boolean onMove(MotionEvent event) {
+        if (null != mVelocityTracker) {
+            mVelocityTracker.addMovement(event);
+        }
+        int index = event.findPointerIndex(mActivePointerId);
+        if (index < 0) {
+            // ACTION_DOWN was not seen, follow the first pointer
+            index = 0;
+            mActivePointerId = event.getPointerId(0);
+        }
+        final int y = (int) event.getY(index);
+        final int shift = mNestedShift;
+        if (!mPulling && mNestedScroll.takeParentScrolled()) {
+            // The parent is taking the scroll of the list, it's not the time to pull.
+            mLastY = y;
+            mEngine.onMoveConsumed(y + shift, event.getEventTime());
+            return false;
+        }
+        int consumed = 0;
+        int offset = 0;
+        if (mPulling) {
+            consumed = mNestedScroll.preScroll(mLastY - y);
+            offset = mNestedScroll.getOffset();
+        }
+        if (consumed == 0) {
+            // The batched samples are only passed when the parent took none of them
+            final int historySize = event.getHistorySize();
+            for (int i = 0; i < historySize; i++) {
+                mEngine.onMove((int) event.getHistoricalY(index, i) + shift, event.getHistoricalEventTime(i));
+            }
+        }
+        mNestedShift += consumed + offset;
+        mLastY = y - offset;
+        mPulling = mEngine.onMove(y + shift + consumed, event.getEventTime());
+        return mPulling;
+    }
+
+    /**
+     * Handle ACTION_POINTER_DOWN, the new pointer becomes the active one.
+     *
+     * @param event
+     */
+    void onPointerDown(MotionEvent event) {
+        if (null != mVelocityTracker) {
+            mVelocityTracker.addMovement(event);
+        }
+        final int index = getActionIndex(event);
+        mActivePointerId = event.getPointerId(index);
+        mLastY = (int) event.getY(index);
+        mEngine.onPointerChanged(mLastY + mNestedShift, event.getEventTime());
+    }
+
+    /**
+     * Handle ACTION_POINTER_UP, hands over to another pointer if the active one was lifted.
+     *
+     * @param event
+     */
+    void onPointerUp(MotionEvent event) {
+        if (null != mVelocityTracker) {
+            mVelocityTracker.addMovement(event);
+        }
+        final int index = getActionIndex(event);
+        if (event.getPointerId(index) != mActivePointerId) {
+            return;
+        }
+        final int newIndex = index == 0 ? 1 : 0;
+        mActivePointerId = event.getPointerId(newIndex);
+        mLastY = (int) event.getY(newIndex);
+        mEngine.onPointerChanged(mLastY + mNestedShift, event.getEventTime());
+    }
+
+    /**
+     * Handle ACTION_UP
+     *
+     * @param event
+     */
+    void onUp(MotionEvent event) {
+        if (null == mVelocityTracker) {
+            // ACTION_DOWN was not seen, use the velocity of the engine
+            recycle();
+            mEngine.onUp();
+            return;
+        }
+        mVelocityTracker.addMovement(event);
+        mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+        float velocity = mActivePointerId == INVALID_POINTER
+                ? mVelocityTracker.getYVelocity() : mVelocityTracker.getYVelocity(mActivePointerId);
+        if (mPulling && mNestedScroll.fling(velocity)) {
+            // The parent flings, the header/footer settles without it
+            velocity = 0f;
+        }
+        recycle();
+        mEngine.onUp(velocity);
+    }
+
+    /**
+     * Handle ACTION_CANCEL
+     */
+    void onCancel() {
+        recycle();
+        mEngine.onCancel();
+    }
+
+    private void recycle() {
+        if (mPulling) {
+            // The widget was canceled when the pull started, it won't stop the nested scroll.
+            mNestedScroll.stop();
+            mPulling = false;
+        }
+        if (null != mVelocityTracker) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        mActivePointerId = INVALID_POINTER;
+    }
+
+    private static int getActionIndex(MotionEvent event) {
+        return (event.getAction() & MotionEvent.ACTION_POINTER_INDEX_MASK) >> MotionEvent.ACTION_POINTER_INDEX_SHIFT;
+    }
+}
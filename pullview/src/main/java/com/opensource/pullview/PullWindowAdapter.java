@@ -0,0 +1,372 @@
+/*
+ * Copyright (C)2016. The Android Open Source Project.
+ *
+ *          yinglovezhuzhu@gmail.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.opensource.pullview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+import com.opensource.pullview.paging.Page;
+import com.opensource.pullview.paging.PageWindow;
+import com.opensource.pullview.paging.PagedLoader;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Usage An adapter for endless lists which keeps only some pages around the visible items in memory.<br>
+ * <p>Use it as the {@link OnPageLoadListener} of {@link BasePullListView#setPagedSource}, then
+ * {@link #setLoader(PagedLoader)} with the returned loader. When more than the max pages are loaded, the pages
+ * farthest from the visible items are dropped ({@link PageWindow}); their rows stay in the list as placeholders,
+ * so the scroll position doesn't move, and they are loaded again from the same {@link com.opensource.pullview.paging.PagedSource}
+ * when they are shown. The pages loaded before the first one are inserted the same way.<br>
+ * <p>A page failed to load again is loaded again after the delay of the {@link RetryPolicy}, up to its max
+ * retries, then not until a refresh. {@link #retryFailedPages()} loads the pages waiting longer than their delay
+ * when the scroll stops.<br>
+ * <p>A {@link BasePullListView} attaches itself in {@link BasePullListView#setAdapter(android.widget.ListAdapter)},
+ * retries when the scroll stops and calls {@link #cancel()} when it's detached, do these for other lists.
+ *
+ * @param <Key>  the key of a page
+ * @param <Item> the item of the list
+ * @author yinglovezhuzhu@gmail.com
+ */
+public abstract class PullWindowAdapter<Key, Item> extends BaseAdapter implements OnPageLoadListener<Item> {
+
+    private final PageWindow<Key, Item> mWindow;
+    private final Executor mExecutor;
+
+    private PagedLoader<Key, Item> mLoader;
+    private ListView mListView;
+    /**
+     * The key of the page to append next
+     */
+    private Key mNextKey;
+    /**
+     * The key of the page to insert before the first one next
+     */
+    private Key mPreviousKey;
+    /**
+     * The pages inserted before the first one, a page loading again moves down by them
+     */
+    private int mPrependedPages = 0;
+    /**
+     * The pages loading again
+     */
+    private final Set<Integer> mLoadingPages = new HashSet<Integer>();
+    /**
+     * The pages failed to load again, to the time(uptime, ms) they are loaded again, Long.MAX_VALUE when given up
+     */
+    private final Map<Integer, Long> mFailedPages = new HashMap<Integer, Long>();
+    /**
+     * The retries done of the pages failed to load again
+     */
+    private final Map<Integer, Integer> mRetries = new HashMap<Integer, Integer>();
+    private RetryPolicy mRetryPolicy = new RetryPolicy();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            retryFailedPages();
+        }
+    };
+    /**
+     * Canceled by refresh and {@link #cancel()}, a page loaded again for the old list is dropped
+     */
+    private CancellationSignal mSignal = new CancellationSignal();
+    private int mLastPosition = 0;
+
+    /**
+     * Constructor, the dropped pages are loaded on {@link PagedLoader#getDefaultExecutor()}
+     *
+     * @param maxPages the max count of the pages kept in memory
+     */
+    public PullWindowAdapter(int maxPages) {
+        this(maxPages, PagedLoader.getDefaultExecutor());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxPages the max count of the pages kept in memory
+     * @param executor loads the dropped pages
+     */
+    public PullWindowAdapter(int maxPages, Executor executor) {
+        if (null == executor) {
+            throw new IllegalArgumentException("executor can not be null");
+        }
+        this.mWindow = new PageWindow<Key, Item>(maxPages);
+        this.mExecutor = executor;
+    }
+
+    /**
+     * Bind the item to the row
+     *
+     * @param item        null for a row of a page not loaded yet
+     * @param convertView the old row to reuse, can be null
+     * @param parent
+     * @return the row
+     */
+    protected abstract View bindView(Item item, View convertView, ViewGroup parent);
+
+    /**
+     * Sets the loader which loads the pages, its source loads the dropped pages again
+     *
+     * @param loader
+     */
+    public void setLoader(PagedLoader<Key, Item> loader) {
+        this.mLoader = loader;
+    }
+
+    /**
+     * Sets the retry policy of the pages failed to load again
+     *
+     * @param policy null to never retry
+     */
+    public void setRetryPolicy(RetryPolicy policy) {
+        this.mRetryPolicy = policy;
+    }
+
+    /**
+     * Sets the list to find the visible items of
+     *
+     * @param listView null to use the last row shown
+     */
+    public void setListView(ListView listView) {
+        this.mListView = listView;
+    }
+
+    @Override
+    public void onPageLoaded(List<Item> items, boolean refresh) {
+        if (null == mLoader) {
+            throw new IllegalStateException("Call setLoader() first");
+        }
+        final Page<Key, Item> page = new Page<Key, Item>(items, mLoader.getNextKey());
+        if (refresh) {
+            cancel();
+            mWindow.clear();
+            mWindow.append(mLoader.getInitialKey(), page);
+            mPreviousKey = mLoader.getPreviousKey();
+        } else {
+            mWindow.append(mNextKey, page);
+        }
+        mNextKey = page.getNextKey();
+        mWindow.trim(getCenterPage());
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public void onPreviousPageLoaded(List<Item> items) {
+        if (null == mLoader) {
+            throw new IllegalStateException("Call setLoader() first");
+        }
+        // The list is not laid out again yet, the page in view moves down by the inserted one
+        final int centerPage = getCenterPage() + 1;
+        final Page<Key, Item> page = new Page<Key, Item>(items, mLoader.getPreviousKey(), null);
+        mWindow.prepend(mPreviousKey, page);
+        mPreviousKey = page.getPreviousKey();
+        mPrependedPages++;
+        shiftPages(mLoadingPages);
+        shiftPages(mFailedPages);
+        shiftPages(mRetries);
+        mLastPosition += items.size();
+        mWindow.trim(centerPage);
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public void onLoadFailed(Throwable error, boolean refresh) {
+        // The widget shows the error and retries
+    }
+
+    /**
+     * Load the pages failed to load again which waited longer than their delay,
+     * the ones not shown any more are loaded when they are shown. The pages given up are not loaded.
+     */
+    public void retryFailedPages() {
+        final long now = SystemClock.uptimeMillis();
+        boolean retried = false;
+        final Iterator<Long> iterator = mFailedPages.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() <= now) {
+                iterator.remove();
+                retried = true;
+            }
+        }
+        scheduleRetry();
+        if (retried) {
+            // The rows shown load their pages again
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Cancel the pages loading again, call it when the list is not shown any more.
+     * They are loaded again when they are shown.
+     */
+    public void cancel() {
+        mSignal.cancel();
+        mSignal = new CancellationSignal();
+        mLoadingPages.clear();
+        mFailedPages.clear();
+        mRetries.clear();
+        mHandler.removeCallbacks(mRetryRunnable);
+    }
+
+    private static void shiftPages(Set<Integer> pages) {
+        final Set<Integer> shifted = new HashSet<Integer>();
+        for (Integer pageIndex : pages) {
+            shifted.add(pageIndex + 1);
+        }
+        pages.clear();
+        pages.addAll(shifted);
+    }
+
+    private static <V> void shiftPages(Map<Integer, V> pages) {
+        final Map<Integer, V> shifted = new HashMap<Integer, V>();
+        for (Map.Entry<Integer, V> entry : pages.entrySet()) {
+            shifted.put(entry.getKey() + 1, entry.getValue());
+        }
+        pages.clear();
+        pages.putAll(shifted);
+    }
+
+    /**
+     * A page failed to load again, wait and retry it, or give it up
+     *
+     * @param pageIndex
+     */
+    private void onPageFailed(int pageIndex) {
+        final Integer retries = mRetries.get(pageIndex);
+        final int retry = null == retries ? 0 : retries;
+        if (null == mRetryPolicy || !mRetryPolicy.shouldRetry(retry)) {
+            // Loaded again after a refresh
+            mFailedPages.put(pageIndex, Long.MAX_VALUE);
+            return;
+        }
+        mRetries.put(pageIndex, retry + 1);
+        mFailedPages.put(pageIndex, SystemClock.uptimeMillis() + mRetryPolicy.getDelay(retry));
+        scheduleRetry();
+    }
+
+    /**
+     * Retry at the time the first page waiting can be loaded again
+     */
+    private void scheduleRetry() {
+        mHandler.removeCallbacks(mRetryRunnable);
+        long time = Long.MAX_VALUE;
+        for (Long retryTime : mFailedPages.values()) {
+            time = Math.min(time, retryTime);
+        }
+        if (time != Long.MAX_VALUE) {
+            mHandler.postAtTime(mRetryRunnable, time);
+        }
+    }
+
+    private int getCenterPage() {
+        final int count = mWindow.getCount();
+        if (count == 0) {
+            return 0;
+        }
+        int position = mLastPosition;
+        final ListView listView = mListView;
+        if (null != listView && listView.getChildCount() > 0) {
+            final int first = listView.getFirstVisiblePosition() - listView.getHeaderViewsCount();
+            position = first + listView.getChildCount() / 2;
+        }
+        return mWindow.getPageIndex(Math.max(0, Math.min(count - 1, position)));
+    }
+
+    private void loadPage(final int pageIndex) {
+        if (null == mLoader || mFailedPages.containsKey(pageIndex) || !mLoadingPages.add(pageIndex)) {
+            return;
+        }
+        final Key key = mWindow.getKey(pageIndex);
+        final CancellationSignal signal = mSignal;
+        final int prependedPages = mPrependedPages;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (signal.isCanceled()) {
+                    // Refreshed or detached while waiting for the executor
+                    return;
+                }
+                Page<Key, Item> page = null;
+                try {
+                    page = mLoader.getSource().load(key, signal);
+                } catch (Exception e) {
+                    // Retried by the retry policy
+                }
+                final Page<Key, Item> result = page;
+                PullMainThreadExecutor.getInstance().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (signal.isCanceled()) {
+                            return;
+                        }
+                        final int index = pageIndex + mPrependedPages - prependedPages;
+                        mLoadingPages.remove(index);
+                        if (null == result) {
+                            onPageFailed(index);
+                            return;
+                        }
+                        mRetries.remove(index);
+                        if (!mWindow.isLoaded(index)) {
+                            mWindow.set(index, result);
+                            mWindow.trim(getCenterPage());
+                            notifyDataSetChanged();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public int getCount() {
+        return mWindow.getCount();
+    }
+
+    @Override
+    public Item getItem(int position) {
+        return mWindow.getItem(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        mLastPosition = position;
+        final int pageIndex = mWindow.getPageIndex(position);
+        if (!mWindow.isLoaded(pageIndex)) {
+            loadPage(pageIndex);
+        }
+        return bindView(mWindow.getItem(position), convertView, parent);
+    }
+}